@@ -0,0 +1,74 @@
+package com.smalldogg.study.querydsl.benchmark;
+
+import com.smalldogg.study.querydsl.QuerydslApplication;
+import com.smalldogg.study.querydsl.entity.Member;
+import com.smalldogg.study.querydsl.entity.Team;
+import com.smalldogg.study.querydsl.repository.MemberTestRepository;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+
+/**
+ * 벤치마크용 스프링 컨텍스트
+ * 임베디드 H2(in-memory) 에 회원 size 명을 팀 10개로 나눠 넣는다.
+ */
+final class BenchmarkContext {
+
+    private static final int TEAM_COUNT = 10;
+    private static final int FLUSH_SIZE = 1000;
+
+    private BenchmarkContext() {
+    }
+
+    static ConfigurableApplicationContext start(int size) {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(QuerydslApplication.class, BenchmarkConfig.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:bench" + size + ";DB_CLOSE_DELAY=-1",
+                        "spring.datasource.username=sa",
+                        "spring.jpa.hibernate.ddl-auto=create-drop",
+                        "spring.jpa.open-in-view=false",
+                        "decorator.datasource.enabled=false",
+                        "logging.level.root=warn")
+                .run();
+        seed(context, size);
+        return context;
+    }
+
+    private static void seed(ConfigurableApplicationContext context, int size) {
+        EntityManager em = context.getBean(EntityManager.class);
+        TransactionTemplate tx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        tx.executeWithoutResult(status -> {
+            Team[] teams = new Team[TEAM_COUNT];
+            for (int i = 0; i < TEAM_COUNT; i++) {
+                teams[i] = new Team("team" + i);
+                em.persist(teams[i]);
+            }
+            for (int i = 0; i < size; i++) {
+                em.persist(new Member("member" + i, i % 100, teams[i % TEAM_COUNT]));
+                if ((i + 1) % FLUSH_SIZE == 0) {
+                    em.flush();
+                    em.clear();
+                    for (int t = 0; t < TEAM_COUNT; t++) {
+                        teams[t] = em.getReference(Team.class, teams[t].getId());
+                    }
+                }
+            }
+        });
+    }
+
+    @Configuration
+    static class BenchmarkConfig {
+        //Querydsl4RepositorySupport 예제 리포지토리는 빈이 아니므로 벤치마크에서만 등록한다.
+        @Bean
+        MemberTestRepository memberTestRepository() {
+            return new MemberTestRepository();
+        }
+    }
+}
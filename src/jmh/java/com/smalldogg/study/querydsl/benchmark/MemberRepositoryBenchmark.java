@@ -0,0 +1,86 @@
+package com.smalldogg.study.querydsl.benchmark;
+
+import com.smalldogg.study.querydsl.dto.MemberColumns;
+import com.smalldogg.study.querydsl.dto.MemberSearchCondition;
+import com.smalldogg.study.querydsl.dto.MemberTeamDto;
+import com.smalldogg.study.querydsl.entity.Member;
+import com.smalldogg.study.querydsl.repository.MemberJpaRepository;
+import com.smalldogg.study.querydsl.repository.MemberRepository;
+import com.smalldogg.study.querydsl.repository.MemberTestRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 리포지토리 검색/페이징 경로 비교
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MemberRepositoryBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    int size;
+
+    ConfigurableApplicationContext context;
+    MemberJpaRepository memberJpaRepository;
+    MemberRepository memberRepository;
+    MemberTestRepository memberTestRepository;
+
+    MemberSearchCondition condition;
+    PageRequest pageRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start(size);
+        memberJpaRepository = context.getBean(MemberJpaRepository.class);
+        memberRepository = context.getBean(MemberRepository.class);
+        memberTestRepository = context.getBean(MemberTestRepository.class);
+
+        condition = new MemberSearchCondition();
+        condition.setTeamName("team3");
+        condition.setAgeGoe(20);
+        condition.setAgeLoe(40);
+        pageRequest = PageRequest.of(1, 20);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> search() {
+        return memberJpaRepository.search(condition);
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> searchByBuilder() {
+        return memberJpaRepository.searchByBuilder(condition);
+    }
+
+    //search 와 같은 조건을 컬럼 배열로 조회 (row 당 DTO 없음)
+    @Benchmark
+    public MemberColumns searchColumns() {
+        return memberRepository.searchColumns(condition);
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> searchPageSimple() {
+        return memberRepository.searchPageSimple(condition, pageRequest);
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> searchPageComplex() {
+        return memberRepository.searchPageComplex(condition, pageRequest);
+    }
+
+    @Benchmark
+    public Page<Member> applyPagination() {
+        return memberTestRepository.applyPagination(condition, pageRequest);
+    }
+}
@@ -0,0 +1,61 @@
+package com.smalldogg.study.querydsl.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * MemberDataChangedEvent 로 비워지는 크기/TTL 제한 캐시
+ * - 쓰기 트랜잭션 안에서는 캐시를 쓰지 않는다. 커밋 전 데이터를 다른 요청에 보여주지 않고,
+ *   아직 flush 되지 않은 자기 변경도 DB 에서 다시 읽게 하기 위해서다.
+ * - 값을 읽어오는 동안 무효화가 있었으면(세대 번호가 바뀌면) 저장하지 않는다.
+ *   커밋 직전 값을 읽은 조회가 커밋 후에 오래된 값을 채워 넣는 것을 막는다.
+ *   확인과 저장 사이에 무효화가 끼어들 수 있으므로 저장한 뒤에 한 번 더 확인하고, 바뀌었으면 저장한 값을 지운다.
+ *   (무효화는 세대 번호를 올린 다음 비우므로, 다시 확인할 때 못 봤다면 그 뒤의 비우기가 저장한 값을 지운다)
+ */
+class InvalidatingCache<K, V> {
+
+    private final Cache<K, V> cache;
+    private final AtomicLong generation = new AtomicLong();
+
+    InvalidatingCache(long maximumSize, Duration ttl) {
+        this(Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .build());
+    }
+
+    InvalidatingCache(Cache<K, V> cache) {
+        this.cache = cache;
+    }
+
+    V get(K key, Supplier<V> loader) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return loader.get();
+        }
+
+        V cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        long loadedAt = generation.get();
+        V value = loader.get();
+        if (generation.get() == loadedAt) {
+            cache.put(key, value);
+            if (generation.get() != loadedAt) {
+                cache.asMap().remove(key, value);
+            }
+        }
+        return value;
+    }
+
+    void invalidateAll() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+}
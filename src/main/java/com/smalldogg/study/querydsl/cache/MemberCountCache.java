@@ -0,0 +1,33 @@
+package com.smalldogg.study.querydsl.cache;
+
+import com.smalldogg.study.querydsl.dto.MemberSearchCondition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * 검색 조건별 전체 count 캐시
+ * 정규화한 MemberSearchCondition 을 키로 사용하고, 크기/TTL 로 만료된다.
+ */
+@Component
+public class MemberCountCache {
+
+    private final InvalidatingCache<MemberSearchCondition, Long> cache;
+
+    public MemberCountCache(@Value("${member.count-cache.maximum-size:10000}") long maximumSize,
+                            @Value("${member.count-cache.ttl:30s}") Duration ttl) {
+        this.cache = new InvalidatingCache<>(maximumSize, ttl);
+    }
+
+    public long get(MemberSearchCondition condition, Supplier<Long> countQuery) {
+        return cache.get(condition.normalize(), countQuery);
+    }
+
+    @EventListener
+    public void invalidate(MemberDataChangedEvent event) {
+        cache.invalidateAll();
+    }
+}
@@ -0,0 +1,25 @@
+package com.smalldogg.study.querydsl.cache;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * Member, Team 엔티티 리스너
+ * 하이버네이트가 SpringBeanContainer 로 생성하므로 생성자 주입을 받을 수 있다.
+ */
+public class MemberDataChangeListener {
+
+    private final MemberDataChangePublisher changePublisher;
+
+    public MemberDataChangeListener(MemberDataChangePublisher changePublisher) {
+        this.changePublisher = changePublisher;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Object entity) {
+        changePublisher.publish(entity.getClass());
+    }
+}
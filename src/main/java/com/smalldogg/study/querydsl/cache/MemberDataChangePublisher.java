@@ -0,0 +1,93 @@
+package com.smalldogg.study.querydsl.cache;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+@Component
+@RequiredArgsConstructor
+public class MemberDataChangePublisher {
+
+    private final ApplicationEventPublisher eventPublisher;
+    private final ThreadLocal<Set<Class<?>>> batchTypes = new ThreadLocal<>();
+
+    /**
+     * 변경 즉시 한 번, 트랜잭션이 끝난 뒤(commit/rollback) 한 번 더 이벤트를 발행한다.
+     * 트랜잭션 도중 다른 요청이 커밋 전 값으로 캐시를 채워도 완료 시점에 다시 비워진다.
+     * 완료 시점 이벤트는 트랜잭션당 엔티티 타입별로 한 번만 발행한다.
+     * 벌크 연산은 엔티티 리스너를 타지 않으므로 직접 호출해야 한다.
+     * openBatch() 로 연 범위 안에서는 발행하지 않고 모아 두었다가 범위를 닫을 때 발행한다.
+     */
+    public void publish(Class<?> entityType) {
+        Set<Class<?>> batch = batchTypes.get();
+        if (batch != null) {
+            batch.add(entityType);
+            return;
+        }
+
+        eventPublisher.publishEvent(new MemberDataChangedEvent(entityType));
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            pendingTypes().add(entityType);
+        }
+    }
+
+    /**
+     * 대량 저장용 범위를 연다. 닫을 때까지 현재 스레드의 publish 를 엔티티 타입별로 모아서,
+     * 닫을 때 타입별로 한 번만 발행한다. (row 마다 캐시를 비우지 않는다)
+     * 이미 열린 범위 안에서 다시 열면 바깥 범위에 모은다.
+     */
+    public Batch openBatch() {
+        if (batchTypes.get() != null) {
+            return new Batch(false);
+        }
+        batchTypes.set(new LinkedHashSet<>());
+        return new Batch(true);
+    }
+
+    public final class Batch implements AutoCloseable {
+        private final boolean outermost;
+
+        private Batch(boolean outermost) {
+            this.outermost = outermost;
+        }
+
+        @Override
+        public void close() {
+            if (!outermost) {
+                return;
+            }
+            Set<Class<?>> types = batchTypes.get();
+            batchTypes.remove();
+            for (Class<?> type : types) {
+                publish(type);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<Class<?>> pendingTypes() {
+        Set<Class<?>> pending = (Set<Class<?>>) TransactionSynchronizationManager.getResource(this);
+        if (pending != null) {
+            return pending;
+        }
+
+        Set<Class<?>> created = new LinkedHashSet<>();
+        TransactionSynchronizationManager.bindResource(this, created);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(MemberDataChangePublisher.this);
+                for (Class<?> type : created) {
+                    eventPublisher.publishEvent(new MemberDataChangedEvent(type));
+                }
+            }
+        });
+        return created;
+    }
+}
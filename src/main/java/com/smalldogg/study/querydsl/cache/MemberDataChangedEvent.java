@@ -0,0 +1,17 @@
+package com.smalldogg.study.querydsl.cache;
+
+import lombok.Getter;
+
+/**
+ * Member / Team 데이터가 변경되었음을 알리는 이벤트
+ * 검색 결과에서 파생된 캐시들은 이 이벤트를 받으면 비운다.
+ */
+@Getter
+public class MemberDataChangedEvent {
+
+    private final Class<?> entityType;
+
+    public MemberDataChangedEvent(Class<?> entityType) {
+        this.entityType = entityType;
+    }
+}
@@ -0,0 +1,87 @@
+package com.smalldogg.study.querydsl.cache;
+
+import com.smalldogg.study.querydsl.dto.MemberSearchCondition;
+import com.smalldogg.study.querydsl.dto.MemberTeamDto;
+import lombok.EqualsAndHashCode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * 검색 결과 캐시 (search, searchPage*, searchSlice*)
+ * 정규화한 MemberSearchCondition 과 페이지(offset, size, sort)를 키로 사용하고, 크기/TTL 로 만료된다.
+ * 같은 조건이라도 조회 방식마다 정렬이 다를 수 있으므로 page, slice 는 조회 메서드 이름도 키에 넣는다.
+ * Member/Team 변경 이벤트(엔티티 리스너, 벌크 연산)를 받으면 전부 비운다.
+ * MemberTeamDto 는 변경 가능한 객체라서 저장할 때와 꺼낼 때 복사한다. (호출한 쪽의 수정이 캐시에 남지 않게)
+ */
+@Component
+public class MemberSearchCache {
+
+    private final InvalidatingCache<Key, List<MemberTeamDto>> lists;
+    private final InvalidatingCache<Key, Page<MemberTeamDto>> pages;
+    private final InvalidatingCache<Key, Slice<MemberTeamDto>> slices;
+
+    public MemberSearchCache(@Value("${member.search-cache.maximum-size:1000}") long maximumSize,
+                             @Value("${member.search-cache.ttl:10s}") Duration ttl) {
+        this.lists = new InvalidatingCache<>(maximumSize, ttl);
+        this.pages = new InvalidatingCache<>(maximumSize, ttl);
+        this.slices = new InvalidatingCache<>(maximumSize, ttl);
+    }
+
+    public List<MemberTeamDto> search(MemberSearchCondition condition, Supplier<List<MemberTeamDto>> query) {
+        return copy(lists.get(new Key("search", condition.normalize(), 0, 0, Sort.unsorted()), () -> copy(query.get())));
+    }
+
+    public Page<MemberTeamDto> searchPage(String method, MemberSearchCondition condition, Pageable pageable,
+                                          Supplier<Page<MemberTeamDto>> query) {
+        return pages.get(new Key(method, condition.normalize(), pageable.getOffset(), pageable.getPageSize(), pageable.getSort()),
+                () -> query.get().map(MemberSearchCache::copy)).map(MemberSearchCache::copy);
+    }
+
+    public Slice<MemberTeamDto> searchSlice(String method, MemberSearchCondition condition, Pageable pageable,
+                                            Supplier<Slice<MemberTeamDto>> query) {
+        return slices.get(new Key(method, condition.normalize(), pageable.getOffset(), pageable.getPageSize(), pageable.getSort()),
+                () -> query.get().map(MemberSearchCache::copy)).map(MemberSearchCache::copy);
+    }
+
+    private static List<MemberTeamDto> copy(List<MemberTeamDto> content) {
+        return content.stream().map(MemberSearchCache::copy).collect(Collectors.toUnmodifiableList());
+    }
+
+    private static MemberTeamDto copy(MemberTeamDto dto) {
+        return new MemberTeamDto(dto.getMemberId(), dto.getUsername(), dto.getAge(), dto.getTeamId(), dto.getTeamName());
+    }
+
+    @EventListener
+    public void invalidate(MemberDataChangedEvent event) {
+        lists.invalidateAll();
+        pages.invalidateAll();
+        slices.invalidateAll();
+    }
+
+    @EqualsAndHashCode
+    private static class Key {
+        private final String method;
+        private final MemberSearchCondition condition;
+        private final long offset;
+        private final int size;
+        private final Sort sort;
+
+        private Key(String method, MemberSearchCondition condition, long offset, int size, Sort sort) {
+            this.method = method;
+            this.condition = condition;
+            this.offset = offset;
+            this.size = size;
+            this.sort = sort;
+        }
+    }
+}
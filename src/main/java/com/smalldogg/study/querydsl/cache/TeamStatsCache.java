@@ -0,0 +1,46 @@
+package com.smalldogg.study.querydsl.cache;
+
+import com.smalldogg.study.querydsl.dto.TeamStatsCondition;
+import com.smalldogg.study.querydsl.dto.TeamStatsDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * 팀별 집계 결과 캐시
+ * 집계는 전체 회원을 읽으므로 Member/Team 변경 이벤트가 올 때까지 결과를 재사용한다.
+ * TeamStatsDto 는 변경 가능한 객체라서 저장할 때와 꺼낼 때 복사한다. (MemberSearchCache 와 같은 이유)
+ */
+@Component
+public class TeamStatsCache {
+
+    private final InvalidatingCache<TeamStatsCondition, List<TeamStatsDto>> cache;
+
+    public TeamStatsCache(@Value("${member.team-stats-cache.maximum-size:100}") long maximumSize,
+                          @Value("${member.team-stats-cache.ttl:5m}") Duration ttl) {
+        this.cache = new InvalidatingCache<>(maximumSize, ttl);
+    }
+
+    public List<TeamStatsDto> get(TeamStatsCondition condition, Supplier<List<TeamStatsDto>> query) {
+        return copy(cache.get(condition.normalize(), () -> copy(query.get())));
+    }
+
+    private static List<TeamStatsDto> copy(List<TeamStatsDto> stats) {
+        return stats.stream().map(TeamStatsCache::copy).collect(Collectors.toUnmodifiableList());
+    }
+
+    private static TeamStatsDto copy(TeamStatsDto dto) {
+        return new TeamStatsDto(dto.getTeamName(), dto.getAgeBucket(), dto.getMemberCount(),
+                dto.getMinAge(), dto.getAvgAge(), dto.getMaxAge());
+    }
+
+    @EventListener
+    public void invalidate(MemberDataChangedEvent event) {
+        cache.invalidateAll();
+    }
+}
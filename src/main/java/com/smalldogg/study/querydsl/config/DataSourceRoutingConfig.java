@@ -0,0 +1,96 @@
+package com.smalldogg.study.querydsl.config;
+
+import com.smalldogg.study.querydsl.cache.MemberDataChangedEvent;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * member.datasource.routing.enabled=true 이면 spring.datasource 를 primary 로,
+ * member.datasource.replicas 를 읽기 전용 트랜잭션용 replica 로 사용한다.
+ * 풀은 빈으로 등록하지 않고 직접 만들어 종료 시 닫는다. (p6spy 가 풀과 라우팅을 이중으로 감싸지 않도록)
+ * p6spy 는 커넥션을 감쌀 때 실제 커넥션을 바로 가져오므로 routingDataSource 를 감싸야 하고,
+ * 그 바깥의 LazyConnectionDataSourceProxy(lazyRoutingDataSource)는 decorator.datasource.exclude-beans 로 제외한다.
+ * 풀 설정(spring.datasource.hikari.*)은 primary 와 replica 풀 모두에 적용한다.
+ * 캐시가 비워진 직후 replica 지연 때문에 오래된 값으로 다시 채워지지 않도록,
+ * 변경 이벤트 후 member.datasource.primary-read-window 동안은 읽기 전용 트랜잭션도 primary 로 보낸다. (0 이면 지연을 허용)
+ */
+@Configuration
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "member.datasource.routing.enabled", havingValue = "true")
+@EnableConfigurationProperties({DataSourceProperties.class, DataSourceRoutingConfig.ReplicaProperties.class})
+public class DataSourceRoutingConfig implements DisposableBean {
+
+    private final Environment environment;
+    private final List<HikariDataSource> pools = new ArrayList<>();
+    private ReplicaRoutingDataSource routingDataSource;
+    private Duration primaryReadWindow = Duration.ZERO;
+
+    @Bean
+    public DataSource routingDataSource(DataSourceProperties primaryProperties, ReplicaProperties replicaProperties) {
+        List<DataSource> replicas = new ArrayList<>();
+        for (DataSourceProperties replica : replicaProperties.getReplicas()) {
+            replicas.add(createDataSource(replica));
+        }
+        routingDataSource = new ReplicaRoutingDataSource(createDataSource(primaryProperties), replicas, replicaProperties.getBalancing());
+        primaryReadWindow = replicaProperties.getPrimaryReadWindow();
+        return routingDataSource;
+    }
+
+    @EventListener
+    public void routeReadsToPrimary(MemberDataChangedEvent event) {
+        if (routingDataSource != null && !primaryReadWindow.isZero()) {
+            routingDataSource.routeReadsToPrimary(primaryReadWindow);
+        }
+    }
+
+    @Bean
+    @Primary
+    public DataSource lazyRoutingDataSource(@Qualifier("routingDataSource") DataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    private HikariDataSource createDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(dataSource));
+        if (properties.getName() != null) {
+            dataSource.setPoolName(properties.getName());
+        }
+        pools.add(dataSource);
+        return dataSource;
+    }
+
+    @Override
+    public void destroy() {
+        pools.forEach(HikariDataSource::close);
+    }
+
+    @Getter
+    @Setter
+    @ConfigurationProperties("member.datasource")
+    public static class ReplicaProperties {
+        private List<DataSourceProperties> replicas = new ArrayList<>();
+        private ReplicaRoutingDataSource.Balancing balancing = ReplicaRoutingDataSource.Balancing.ROUND_ROBIN;
+        private Duration primaryReadWindow = Duration.ofSeconds(1);
+    }
+}
@@ -0,0 +1,62 @@
+package com.smalldogg.study.querydsl.config;
+
+import com.smalldogg.study.querydsl.metrics.PersistenceCost;
+import com.smalldogg.study.querydsl.metrics.SqlEndpoint;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class ExecutorConfig {
+
+    /**
+     * 페이징 count 쿼리를 content 쿼리와 동시에 실행하기 위한 executor
+     * 요청 스레드는 content 커넥션을 쥔 채(OSIV 면 요청이 끝날 때까지) count 를 기다리므로,
+     * count 스레드가 풀을 다 차지하면 요청 스레드가 커넥션을 못 얻어 서로 기다리게 된다.
+     * 그래서 스레드 수는 커넥션 풀 크기 - 1 을 넘지 않게 자른다.
+     * 요청 스레드가 풀을 다 쥔 경우에는 count 가 connection-timeout 만큼 기다리다 실패한다.
+     * 큐가 가득 차면 호출한 스레드에서 실행한다. (순차 실행과 같아짐)
+     */
+    @Bean
+    public ThreadPoolTaskExecutor countQueryExecutor(@Value("${member.count-executor.pool-size:4}") int poolSize,
+                                                     @Value("${member.count-executor.queue-capacity:100}") int queueCapacity,
+                                                     @Value("${spring.datasource.hikari.maximum-pool-size:10}") int connectionPoolSize) {
+        int threads = Math.max(1, Math.min(poolSize, connectionPoolSize - 1));
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("count-query-");
+        executor.setTaskDecorator(requestMetrics());
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        return executor;
+    }
+
+    /**
+     * 컨트롤러의 비동기 조회를 실행하는 executor
+     * 동시에 DB 를 쓰는 스레드 수를 커넥션 풀 크기로 제한하고,
+     * 큐가 가득 차면 TaskRejectedException 으로 바로 거절한다.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor jdbcExecutor(@Value("${member.jdbc-executor.pool-size:${spring.datasource.hikari.maximum-pool-size:10}}") int poolSize,
+                                               @Value("${member.jdbc-executor.queue-capacity:200}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("jdbc-");
+        executor.setTaskDecorator(requestMetrics());
+        return executor;
+    }
+
+    //SQL 메트릭의 endpoint 태그와 요청의 PersistenceCost 를 작업 스레드로 넘긴다.
+    private static TaskDecorator requestMetrics() {
+        TaskDecorator endpoint = SqlEndpoint.taskDecorator();
+        TaskDecorator cost = PersistenceCost.taskDecorator();
+        return runnable -> endpoint.decorate(cost.decorate(runnable));
+    }
+}
@@ -0,0 +1,31 @@
+package com.smalldogg.study.querydsl.config;
+
+import com.querydsl.sql.SQLQueryFactory;
+import com.querydsl.sql.SQLTemplates;
+import com.querydsl.sql.SQLTemplatesRegistry;
+import com.querydsl.sql.spring.SpringConnectionProvider;
+import com.querydsl.sql.spring.SpringExceptionTranslator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+
+import javax.sql.DataSource;
+
+/**
+ * querydsl-sql 설정 (JPQL 로 표현할 수 없는 윈도우 함수 등 SQL 전용 쿼리)
+ * 커넥션은 현재 트랜잭션(JpaTransactionManager)이 잡고 있는 커넥션을 쓰므로 트랜잭션 안에서만 실행할 수 있다.
+ * SQL 방언은 DB 메타데이터로 고른다.
+ */
+@Configuration
+public class QuerydslSqlConfig {
+
+    @Bean
+    public SQLQueryFactory sqlQueryFactory(DataSource dataSource) throws MetaDataAccessException {
+        SQLTemplates templates = JdbcUtils.extractDatabaseMetaData(dataSource,
+                metaData -> new SQLTemplatesRegistry().getTemplates(metaData));
+        com.querydsl.sql.Configuration configuration = new com.querydsl.sql.Configuration(templates);
+        configuration.setExceptionTranslator(new SpringExceptionTranslator());
+        return new SQLQueryFactory(configuration, new SpringConnectionProvider(dataSource));
+    }
+}
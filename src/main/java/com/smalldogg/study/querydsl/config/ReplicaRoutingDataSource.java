@@ -0,0 +1,91 @@
+package com.smalldogg.study.querydsl.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 읽기 전용 트랜잭션은 replica 로, 그 외(쓰기, 트랜잭션 없음)는 primary 로 보내는 DataSource
+ * 트랜잭션 시작 시점에는 읽기 전용 여부가 아직 정해지지 않으므로 LazyConnectionDataSourceProxy 로 감싸서
+ * 실제 커넥션이 필요할 때 라우팅해야 한다.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Balancing {
+        ROUND_ROBIN, LEAST_CONNECTIONS
+    }
+
+    static final String PRIMARY = "primary";
+
+    private final List<DataSource> replicas;
+    private final Balancing balancing;
+    private final AtomicInteger counter = new AtomicInteger();
+    private final AtomicLong primaryReadsUntil = new AtomicLong(System.nanoTime());
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, Balancing balancing) {
+        this.replicas = replicas;
+        this.balancing = balancing;
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            targets.put(i, replicas.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    /**
+     * 지금부터 window 동안은 읽기 전용 트랜잭션도 primary 로 보낸다. (이미 더 길게 잡혀 있으면 그대로)
+     */
+    public void routeReadsToPrimary(Duration window) {
+        long until = System.nanoTime() + window.toNanos();
+        primaryReadsUntil.accumulateAndGet(until, (current, next) -> next - current > 0 ? next : current);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (replicas.isEmpty() || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                || primaryReadsUntil.get() - System.nanoTime() > 0) {
+            return PRIMARY;
+        }
+        return balancing == Balancing.LEAST_CONNECTIONS ? leastConnections() : roundRobin();
+    }
+
+    private int roundRobin() {
+        return Math.floorMod(counter.getAndIncrement(), replicas.size());
+    }
+
+    //Hikari 풀의 사용 중인 커넥션이 가장 적은 replica
+    private int leastConnections() {
+        int selected = 0;
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < replicas.size(); i++) {
+            int active = activeConnections(replicas.get(i));
+            if (active < min) {
+                min = active;
+                selected = i;
+            }
+        }
+        return selected;
+    }
+
+    private static int activeConnections(DataSource dataSource) {
+        if (dataSource instanceof HikariDataSource) {
+            HikariPoolMXBean pool = ((HikariDataSource) dataSource).getHikariPoolMXBean();
+            if (pool != null) {
+                return pool.getActiveConnections();
+            }
+        }
+        return 0;
+    }
+}
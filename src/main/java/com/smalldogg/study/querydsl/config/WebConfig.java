@@ -0,0 +1,29 @@
+package com.smalldogg.study.querydsl.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smalldogg.study.querydsl.metrics.NPlusOneInterceptor;
+import com.smalldogg.study.querydsl.metrics.TimedJackson2HttpMessageConverter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@RequiredArgsConstructor
+public class WebConfig implements WebMvcConfigurer {
+
+    private final NPlusOneInterceptor nPlusOneInterceptor;
+
+    //Server-Timing 에 직렬화 시간을 넣기 위한 JSON 컨버터 (기본 컨버터를 대체)
+    @Bean
+    public MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter(ObjectMapper objectMapper) {
+        return new TimedJackson2HttpMessageConverter(objectMapper);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(nPlusOneInterceptor);
+    }
+}
@@ -0,0 +1,38 @@
+package com.smalldogg.study.querydsl.controller;
+
+import com.smalldogg.study.querydsl.dto.CacheRegionStatsDto;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+public class CacheStatsController {
+
+    private final EntityManagerFactory emf;
+
+    //2차 캐시 region 별 hit/miss (hibernate.generate_statistics 를 켠 경우만 값이 쌓인다)
+    @GetMapping("/stats/second-level-cache")
+    public List<CacheRegionStatsDto> secondLevelCacheStats() {
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+
+        List<CacheRegionStatsDto> result = new ArrayList<>();
+        for (String regionName : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics region = statistics.getDomainDataRegionStatistics(regionName);
+            result.add(new CacheRegionStatsDto(
+                    regionName,
+                    region.getHitCount(),
+                    region.getMissCount(),
+                    region.getPutCount(),
+                    region.getElementCountInMemory()));
+        }
+        return result;
+    }
+}
@@ -2,6 +2,7 @@ package com.smalldogg.study.querydsl.controller;
 
 import com.smalldogg.study.querydsl.entity.Member;
 import com.smalldogg.study.querydsl.entity.Team;
+import com.smalldogg.study.querydsl.repository.MemberJpaRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
@@ -9,8 +10,8 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.annotation.PostConstruct;
-import javax.persistence.EntityManager;
-import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.List;
 
 @Profile("local")
 @Component
@@ -25,21 +26,22 @@ public class InitMember {
     }
 
     @Service
+    @RequiredArgsConstructor
     static class InitMemberService{
-        @PersistenceContext
-        private EntityManager em;
+        private final MemberJpaRepository memberJpaRepository;
 
         @Transactional
         public void init() {
             Team teamA = new Team("teamA");
             Team teamB = new Team("teamB");
-            em.persist(teamA);
-            em.persist(teamB);
+            memberJpaRepository.saveAllTeams(List.of(teamA, teamB));
 
+            List<Member> members = new ArrayList<>();
             for (int i = 0; i < 100; i++) {
                 Team selectedTeam = i%2 ==0 ? teamA: teamB;
-                em.persist(new Member("member"+i, i, selectedTeam));
+                members.add(new Member("member"+i, i, selectedTeam));
             }
+            memberJpaRepository.saveAll(members);
         }
     }
 
@@ -1,16 +1,40 @@
 package com.smalldogg.study.querydsl.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.smalldogg.study.querydsl.dto.MemberSearchCondition;
 import com.smalldogg.study.querydsl.dto.MemberTeamDto;
 import com.smalldogg.study.querydsl.repository.MemberJpaRepository;
 import com.smalldogg.study.querydsl.repository.MemberRepository;
+import com.smalldogg.study.querydsl.repository.support.KeysetPage;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 
 @RestController
 @RequiredArgsConstructor
@@ -18,12 +42,37 @@ public class MemberController {
 
     private final MemberJpaRepository memberJpaRepository;
     private final MemberRepository memberRepository;
+    private final ObjectMapper objectMapper;
+    @Qualifier("jdbcExecutor")
+    private final Executor jdbcExecutor;
+    @Value("${member.async.timeout:10s}")
+    private final Duration asyncTimeout;
+    private final PlatformTransactionManager transactionManager;
 
     @GetMapping("/v1/members")
     public List<MemberTeamDto> searchMemberV1(MemberSearchCondition condition) {
         return memberJpaRepository.search(condition);
     }
 
+    //결과를 메모리에 모으지 않고 한 줄에 하나씩 JSON 으로 내려준다. (NDJSON)
+    @GetMapping(value = "/v1/members/stream", produces = "application/x-ndjson")
+    public void searchMemberV1Stream(MemberSearchCondition condition, HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        OutputStream out = response.getOutputStream();
+        ObjectWriter writer = objectMapper.writerFor(MemberTeamDto.class);
+
+        memberJpaRepository.searchStream(condition, dto -> {
+            try {
+                out.write(writer.writeValueAsBytes(dto));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        out.flush();
+    }
+
     @GetMapping("/v2/members")
     public Page<MemberTeamDto> searchMemberV2(MemberSearchCondition condition, Pageable pageable) {
         return memberRepository.searchPageSimple(condition,pageable);
@@ -33,4 +82,77 @@ public class MemberController {
     public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageable) {
         return memberRepository.searchPageComplex(condition,pageable);
     }
+
+    //content, count 쿼리를 동시에 실행
+    @GetMapping("/v5/members")
+    public Page<MemberTeamDto> searchMemberV5(MemberSearchCondition condition, Pageable pageable) {
+        return memberRepository.searchPageParallel(condition, pageable);
+    }
+
+    //id 만 먼저 페이징하고 그 페이지의 id 로 content 조회 (deferred join)
+    @GetMapping("/v7/members")
+    public Page<MemberTeamDto> searchMemberV7(MemberSearchCondition condition, Pageable pageable) {
+        return memberRepository.searchPageDeferred(condition, pageable);
+    }
+
+    //offset 대신 cursor 로 다음 페이지 조회 (keyset pagination)
+    @GetMapping("/v4/members")
+    public KeysetPage<MemberTeamDto> searchMemberV4(MemberSearchCondition condition, Pageable pageable,
+                                                    @RequestParam(required = false) String cursor) {
+        return memberRepository.searchKeyset(condition, pageable, cursor);
+    }
+
+    //전체 건수 없이 다음 페이지 여부만 (count 쿼리 없음)
+    @GetMapping("/v6/members")
+    public Slice<MemberTeamDto> searchMemberV6(MemberSearchCondition condition, Pageable pageable) {
+        return memberRepository.searchSliceSimple(condition, pageable);
+    }
+
+    //요청 스레드는 바로 반환하고 조회는 jdbcExecutor 에서 실행
+    @GetMapping("/async/v1/members")
+    public CompletableFuture<List<MemberTeamDto>> searchMemberV1Async(MemberSearchCondition condition) {
+        return async(() -> memberJpaRepository.search(condition));
+    }
+
+    @GetMapping("/async/v2/members")
+    public CompletableFuture<Page<MemberTeamDto>> searchMemberV2Async(MemberSearchCondition condition, Pageable pageable) {
+        return async(() -> memberRepository.searchPageSimple(condition, pageable));
+    }
+
+    @GetMapping("/async/v3/members")
+    public CompletableFuture<Page<MemberTeamDto>> searchMemberV3Async(MemberSearchCondition condition, Pageable pageable) {
+        return async(() -> memberRepository.searchPageComplex(condition, pageable));
+    }
+
+    /**
+     * 타임아웃되면 큐에서 기다리던 작업은 실행되지 않는다.
+     * 이미 실행 중인 쿼리는 남은 시간을 트랜잭션 타임아웃으로 걸어 JDBC query timeout 으로 멈춘다.
+     * (응답만 503 으로 끝나고 스레드와 커넥션은 계속 쥐고 있지 않도록)
+     */
+    private <T> CompletableFuture<T> async(Supplier<T> query) {
+        long deadline = System.nanoTime() + asyncTimeout.toNanos();
+        return CompletableFuture.supplyAsync(() -> readOnlyTransaction(deadline).execute(status -> query.get()), jdbcExecutor)
+                .orTimeout(asyncTimeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    //트랜잭션 타임아웃은 초 단위라서 올림한다.
+    private TransactionTemplate readOnlyTransaction(long deadline) {
+        long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        template.setTimeout((int) Math.max(1, (remainingMillis + 999) / 1000));
+        return template;
+    }
+
+    //지원하지 않는 정렬 조건, 잘못된 cursor 등
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Void> badRequest() {
+        return ResponseEntity.badRequest().build();
+    }
+
+    //큐가 가득 찼거나 타임아웃이면 503
+    @ExceptionHandler({TaskRejectedException.class, TimeoutException.class})
+    public ResponseEntity<Void> serviceUnavailable() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+    }
 }
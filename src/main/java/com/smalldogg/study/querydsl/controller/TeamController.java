@@ -0,0 +1,30 @@
+package com.smalldogg.study.querydsl.controller;
+
+import com.smalldogg.study.querydsl.dto.TeamStatsCondition;
+import com.smalldogg.study.querydsl.dto.TeamStatsDto;
+import com.smalldogg.study.querydsl.repository.MemberRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+public class TeamController {
+
+    private final MemberRepository memberRepository;
+
+    //팀별 회원 수, 최소/평균/최대 나이 (ageBucketSize 를 주면 나이 구간별)
+    @GetMapping("/teams/stats")
+    public List<TeamStatsDto> teamStats(TeamStatsCondition condition) {
+        return memberRepository.teamStats(condition);
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Void> badRequest() {
+        return ResponseEntity.badRequest().build();
+    }
+}
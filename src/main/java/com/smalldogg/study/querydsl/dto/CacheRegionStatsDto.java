@@ -0,0 +1,23 @@
+package com.smalldogg.study.querydsl.dto;
+
+import lombok.Data;
+
+@Data
+public class CacheRegionStatsDto {
+    private String regionName;
+    private long hitCount;
+    private long missCount;
+    private long putCount;
+    private long elementCountInMemory;
+    private double hitRatio;
+
+    public CacheRegionStatsDto(String regionName, long hitCount, long missCount, long putCount, long elementCountInMemory) {
+        this.regionName = regionName;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.putCount = putCount;
+        this.elementCountInMemory = elementCountInMemory;
+        long requests = hitCount + missCount;
+        this.hitRatio = requests == 0 ? 0 : (double) hitCount / requests;
+    }
+}
@@ -0,0 +1,33 @@
+package com.smalldogg.study.querydsl.dto;
+
+import lombok.Getter;
+
+/**
+ * 회원 검색 결과를 컬럼별 기본 타입 배열로 담는다. (분석/리포트용)
+ * i 번째 row 는 각 배열의 i 번째 값이다.
+ * - teamIds : 팀이 없으면 0
+ * - teamNameCodes : teamNames(사전)의 인덱스, 팀이 없으면 -1
+ */
+@Getter
+public class MemberColumns {
+    private final int size;
+    private final long[] memberIds;
+    private final int[] ages;
+    private final long[] teamIds;
+    private final int[] teamNameCodes;
+    private final String[] teamNames;
+
+    public MemberColumns(int size, long[] memberIds, int[] ages, long[] teamIds, int[] teamNameCodes, String[] teamNames) {
+        this.size = size;
+        this.memberIds = memberIds;
+        this.ages = ages;
+        this.teamIds = teamIds;
+        this.teamNameCodes = teamNameCodes;
+        this.teamNames = teamNames;
+    }
+
+    public String teamName(int row) {
+        int code = teamNameCodes[row];
+        return code < 0 ? null : teamNames[code];
+    }
+}
@@ -0,0 +1,27 @@
+package com.smalldogg.study.querydsl.dto;
+
+import com.querydsl.core.annotations.QueryProjection;
+import lombok.Data;
+
+@Data
+public class MemberRankDto {
+    private Long memberId;
+    private String username;
+    private int age;
+    private Long teamId;
+    private String teamName;
+    //팀 안에서 나이 순위 (나이가 많을수록 1에 가깝다, 같은 나이는 id 순)
+    private long ageRank;
+    private double teamAvgAge;
+
+    @QueryProjection
+    public MemberRankDto(Long memberId, String username, int age, Long teamId, String teamName, long ageRank, double teamAvgAge) {
+        this.memberId = memberId;
+        this.username = username;
+        this.age = age;
+        this.teamId = teamId;
+        this.teamName = teamName;
+        this.ageRank = ageRank;
+        this.teamAvgAge = teamAvgAge;
+    }
+}
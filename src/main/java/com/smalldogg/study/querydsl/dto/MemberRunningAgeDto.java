@@ -0,0 +1,28 @@
+package com.smalldogg.study.querydsl.dto;
+
+import com.querydsl.core.annotations.QueryProjection;
+import lombok.Data;
+
+@Data
+public class MemberRunningAgeDto {
+    private Long memberId;
+    private String username;
+    private int age;
+    private Long teamId;
+    //팀 안에서 나이 순으로 현재 회원까지의 누적 값
+    private long runningCount;
+    private long runningAgeSum;
+    private double runningAvgAge;
+
+    @QueryProjection
+    public MemberRunningAgeDto(Long memberId, String username, int age, Long teamId,
+                               long runningCount, long runningAgeSum, double runningAvgAge) {
+        this.memberId = memberId;
+        this.username = username;
+        this.age = age;
+        this.teamId = teamId;
+        this.runningCount = runningCount;
+        this.runningAgeSum = runningAgeSum;
+        this.runningAvgAge = runningAvgAge;
+    }
+}
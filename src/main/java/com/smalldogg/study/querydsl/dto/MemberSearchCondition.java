@@ -1,7 +1,15 @@
 package com.smalldogg.study.querydsl.dto;
 
+import com.smalldogg.study.querydsl.repository.support.InClause;
 import lombok.Data;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+
+import static org.springframework.util.StringUtils.hasText;
+
 @Data
 public class MemberSearchCondition {
     //회원명, 팀명, 나이(ageGoe, ageLoe)
@@ -9,4 +17,38 @@ public class MemberSearchCondition {
     private String teamName;
     private Integer ageGoe;
     private Integer ageLoe;
+
+    //다중 값 조건 (IN)
+    private List<String> usernames;
+    private List<String> teamNames;
+    private List<Long> teamIds;
+
+    /**
+     * 캐시 키로 쓰기 위한 정규화된 복사본
+     * 검색 조건에서 무시되는 빈 문자열/빈 리스트는 null 로 맞추고, 리스트는 정렬 + 중복 제거한다.
+     */
+    public MemberSearchCondition normalize() {
+        MemberSearchCondition normalized = new MemberSearchCondition();
+        normalized.setUsername(hasText(username) ? username : null);
+        normalized.setTeamName(hasText(teamName) ? teamName : null);
+        normalized.setAgeGoe(ageGoe);
+        normalized.setAgeLoe(ageLoe);
+        normalized.setUsernames(normalize(usernames));
+        normalized.setTeamNames(normalize(teamNames));
+        normalized.setTeamIds(normalize(teamIds));
+        return normalized;
+    }
+
+    private static <T extends Comparable<? super T>> List<T> normalize(Collection<T> values) {
+        if (values == null) {
+            return null;
+        }
+        TreeSet<T> sorted = new TreeSet<>();
+        for (T value : values) {
+            if (InClause.isPresent(value)) {
+                sorted.add(value);
+            }
+        }
+        return sorted.isEmpty() ? null : new ArrayList<>(sorted);
+    }
 }
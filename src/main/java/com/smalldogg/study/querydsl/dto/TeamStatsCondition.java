@@ -0,0 +1,26 @@
+package com.smalldogg.study.querydsl.dto;
+
+import lombok.Data;
+
+@Data
+public class TeamStatsCondition {
+    //나이 구간 크기 (10 이면 0~9, 10~19 ... 로 나눈다), 없으면 팀별로만 집계
+    private Integer ageBucketSize;
+
+    //having 조건 : 회원 수, 평균 나이
+    private Long memberCountGoe;
+    private Double avgAgeGoe;
+    private Double avgAgeLoe;
+
+    /**
+     * 캐시 키로 쓰기 위한 복사본
+     */
+    public TeamStatsCondition normalize() {
+        TeamStatsCondition normalized = new TeamStatsCondition();
+        normalized.setAgeBucketSize(ageBucketSize);
+        normalized.setMemberCountGoe(memberCountGoe);
+        normalized.setAvgAgeGoe(avgAgeGoe);
+        normalized.setAvgAgeLoe(avgAgeLoe);
+        return normalized;
+    }
+}
@@ -0,0 +1,30 @@
+package com.smalldogg.study.querydsl.dto;
+
+import com.querydsl.core.annotations.QueryProjection;
+import lombok.Data;
+
+@Data
+public class TeamStatsDto {
+    private String teamName;
+    //나이 구간의 시작 값, 구간 없이 집계하면 null
+    private Integer ageBucket;
+    private long memberCount;
+    private int minAge;
+    private double avgAge;
+    private int maxAge;
+
+    @QueryProjection
+    public TeamStatsDto(String teamName, Long memberCount, Integer minAge, Double avgAge, Integer maxAge) {
+        this(teamName, null, memberCount, minAge, avgAge, maxAge);
+    }
+
+    @QueryProjection
+    public TeamStatsDto(String teamName, Integer ageBucket, Long memberCount, Integer minAge, Double avgAge, Integer maxAge) {
+        this.teamName = teamName;
+        this.ageBucket = ageBucket;
+        this.memberCount = memberCount;
+        this.minAge = minAge;
+        this.avgAge = avgAge;
+        this.maxAge = maxAge;
+    }
+}
@@ -0,0 +1,42 @@
+package com.smalldogg.study.querydsl.entity;
+
+import lombok.AccessLevel;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+import org.hibernate.annotations.Synchronize;
+
+import javax.persistence.*;
+import java.io.Serializable;
+
+/**
+ * (팀, 나이)별 회원 수 요약 테이블
+ * MemberCountSummary 가 JDBC 로 갱신하고 JPA 로는 조회만 한다. 팀이 없는 회원은 teamId 0 으로 센다.
+ * member 테이블과 동기화해 두어서, flush 되지 않은 Member 변경이 있으면 이 엔티티를 조회하기 전에 flush 된다.
+ */
+@Entity
+@Immutable
+@Synchronize("member")
+@IdClass(MemberTeamAgeCount.Key.class)
+@Table(indexes = @Index(name = "idx_member_team_age_count_team_age", columnList = "team_id, age"))
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class MemberTeamAgeCount {
+    @Id
+    @Column(name = "team_id")
+    private Long teamId;
+
+    @Id
+    private int age;
+
+    @Column(name = "member_count")
+    private long memberCount;
+
+    @EqualsAndHashCode
+    @NoArgsConstructor
+    public static class Key implements Serializable {
+        private Long teamId;
+        private int age;
+    }
+}
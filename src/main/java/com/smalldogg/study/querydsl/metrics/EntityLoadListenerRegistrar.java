@@ -0,0 +1,29 @@
+package com.smalldogg.study.querydsl.metrics;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostLoadEventListener;
+import org.hibernate.internal.SessionFactoryImpl;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * 엔티티가 로딩(hydration)될 때마다 PersistenceCost 에 기록하도록 post-load 리스너를 붙인다.
+ */
+@Component
+@RequiredArgsConstructor
+public class EntityLoadListenerRegistrar {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    @PostConstruct
+    public void register() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImpl.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_LOAD, (PostLoadEventListener) event -> PersistenceCost.entityLoaded());
+    }
+}
@@ -0,0 +1,57 @@
+package com.smalldogg.study.querydsl.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Map;
+
+/**
+ * 요청마다 QueryCounter 범위를 열고, 같은 SQL 이 반복 실행되었으면 N+1 의심으로 경고 로그를 남긴다.
+ * 비동기 요청은 요청 스레드에서 실행된 SQL 만 센다.
+ */
+@Slf4j
+@Component
+public class NPlusOneInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String SCOPE_ATTRIBUTE = NPlusOneInterceptor.class.getName() + ".scope";
+
+    private final int threshold;
+
+    public NPlusOneInterceptor(@Value("${member.n-plus-one.threshold:" + QueryCounter.DEFAULT_REPEAT_THRESHOLD + "}") int threshold) {
+        this.threshold = threshold;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        request.setAttribute(SCOPE_ATTRIBUTE, QueryCounter.open());
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        report(request);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        report(request);
+    }
+
+    private void report(HttpServletRequest request) {
+        QueryCounter.Scope scope = (QueryCounter.Scope) request.getAttribute(SCOPE_ATTRIBUTE);
+        if (scope == null) {
+            return;
+        }
+        request.removeAttribute(SCOPE_ATTRIBUTE);
+        scope.close();
+
+        Map<String, Integer> repeated = scope.getRepeated(threshold);
+        if (!repeated.isEmpty()) {
+            log.warn("N+1 의심 {} {} : 쿼리 {}회, 반복 {}", request.getMethod(), SqlEndpoint.current(), scope.getCount(), repeated);
+        }
+    }
+}
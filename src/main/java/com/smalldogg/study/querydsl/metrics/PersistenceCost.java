@@ -0,0 +1,124 @@
+package com.smalldogg.study.querydsl.metrics;
+
+import lombok.Getter;
+import org.springframework.core.task.TaskDecorator;
+
+/**
+ * 요청 하나의 영속성 비용 (SQL 수/시간, fetch 한 row 수, 로딩한 엔티티 수, flush 시간, JSON 직렬화 시간)
+ * 요청 스레드의 ThreadLocal 에 모으며 각 기록은 필드 증가뿐이라 항상 켜둘 수 있다.
+ * executor(jdbcExecutor, countQueryExecutor)에 제출한 작업은 taskDecorator 로 같은 PersistenceCost 에 기록하고,
+ * 비동기 요청은 PersistenceCostFilter 가 async dispatch 에서 다시 연결한다.
+ * 여러 스레드에서 기록할 수 있으므로 기록은 synchronized 로 한다. (경합은 병렬 count 정도)
+ */
+@Getter
+public final class PersistenceCost {
+
+    public static final String SERVER_TIMING = "Server-Timing";
+
+    private static final ThreadLocal<PersistenceCost> CURRENT = new ThreadLocal<>();
+
+    private int statements;
+    private long statementNanos;
+    private long rows;
+    private int entities;
+    private long flushNanos;
+    private long serializationNanos;
+
+    private PersistenceCost() {
+    }
+
+    public static PersistenceCost start() {
+        PersistenceCost cost = new PersistenceCost();
+        CURRENT.set(cost);
+        return cost;
+    }
+
+    public static PersistenceCost current() {
+        return CURRENT.get();
+    }
+
+    //async dispatch 처럼 같은 요청을 다른 스레드에서 이어서 처리할 때
+    public void resume() {
+        CURRENT.set(this);
+    }
+
+    public void end() {
+        if (CURRENT.get() == this) {
+            CURRENT.remove();
+        }
+    }
+
+    //제출한 스레드의 PersistenceCost 를 작업 스레드에서도 쓴다.
+    public static TaskDecorator taskDecorator() {
+        return runnable -> {
+            PersistenceCost cost = current();
+            if (cost == null) {
+                return runnable;
+            }
+            return () -> {
+                PersistenceCost previous = CURRENT.get();
+                CURRENT.set(cost);
+                try {
+                    runnable.run();
+                } finally {
+                    if (previous != null) {
+                        CURRENT.set(previous);
+                    } else {
+                        CURRENT.remove();
+                    }
+                }
+            };
+        };
+    }
+
+    static void statementExecuted(long nanos) {
+        PersistenceCost cost = CURRENT.get();
+        if (cost != null) {
+            synchronized (cost) {
+                cost.statements++;
+                cost.statementNanos += nanos;
+            }
+        }
+    }
+
+    static void rowFetched() {
+        PersistenceCost cost = CURRENT.get();
+        if (cost != null) {
+            synchronized (cost) {
+                cost.rows++;
+            }
+        }
+    }
+
+    static void entityLoaded() {
+        PersistenceCost cost = CURRENT.get();
+        if (cost != null) {
+            synchronized (cost) {
+                cost.entities++;
+            }
+        }
+    }
+
+    static void flushed(long nanos) {
+        PersistenceCost cost = CURRENT.get();
+        if (cost != null) {
+            synchronized (cost) {
+                cost.flushNanos += nanos;
+            }
+        }
+    }
+
+    synchronized void serialized(long nanos) {
+        serializationNanos += nanos;
+    }
+
+    //ex) sql;dur=3.21;desc="statements=2 rows=20", entities;desc="loaded=0", flush;dur=0.00, json;dur=0.85
+    public synchronized String toServerTiming() {
+        return String.format("sql;dur=%.2f;desc=\"statements=%d rows=%d\", entities;desc=\"loaded=%d\", flush;dur=%.2f, json;dur=%.2f",
+                millis(statementNanos), statements, rows, entities, millis(flushNanos), millis(serializationNanos));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
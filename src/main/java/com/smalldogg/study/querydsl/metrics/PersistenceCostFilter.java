@@ -0,0 +1,57 @@
+package com.smalldogg.study.querydsl.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 요청마다 PersistenceCost 를 모아 Server-Timing 헤더로 내려준다.
+ * JSON 응답은 TimedJackson2HttpMessageConverter 가 본문을 내보내기 직전에 헤더를 붙이고,
+ * 그 외 응답은 아직 커밋되지 않았을 때만 여기서 붙인다.
+ * 비동기 요청은 PersistenceCost 를 request attribute 로 넘겨 async dispatch 에서 이어서 모으고, 그때 헤더를 붙인다.
+ * 로그는 com.smalldogg.study.querydsl.metrics 를 debug 로 켜면 남는다.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "member.persistence-cost.enabled", havingValue = "true", matchIfMissing = true)
+public class PersistenceCostFilter extends OncePerRequestFilter {
+
+    private static final String ATTRIBUTE = PersistenceCost.class.getName();
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        PersistenceCost cost = (PersistenceCost) request.getAttribute(ATTRIBUTE);
+        if (cost == null) {
+            cost = PersistenceCost.start();
+            request.setAttribute(ATTRIBUTE, cost);
+        } else {
+            cost.resume();
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            cost.end();
+            if (!isAsyncStarted(request)) {
+                if (!response.isCommitted() && !response.containsHeader(PersistenceCost.SERVER_TIMING)) {
+                    response.setHeader(PersistenceCost.SERVER_TIMING, cost.toServerTiming());
+                }
+                if (log.isDebugEnabled()) {
+                    log.debug("{} {} {}", request.getMethod(), request.getRequestURI(), cost.toServerTiming());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.smalldogg.study.querydsl.metrics;
+
+import org.hibernate.BaseSessionEventListener;
+
+/**
+ * 세션마다 생성되어 flush(자동 flush 포함) 시간을 PersistenceCost 에 기록한다.
+ * hibernate.session.events.auto 로 등록한다.
+ */
+public class PersistenceCostSessionListener extends BaseSessionEventListener {
+
+    private long flushStart;
+
+    @Override
+    public void flushStart() {
+        flushStart = System.nanoTime();
+    }
+
+    @Override
+    public void flushEnd(int numberOfEntities, int numberOfCollections) {
+        PersistenceCost.flushed(System.nanoTime() - flushStart);
+    }
+
+    @Override
+    public void partialFlushStart() {
+        flushStart = System.nanoTime();
+    }
+
+    @Override
+    public void partialFlushEnd(int numberOfEntities, int numberOfCollections) {
+        PersistenceCost.flushed(System.nanoTime() - flushStart);
+    }
+}
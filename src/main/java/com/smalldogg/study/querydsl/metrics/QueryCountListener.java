@@ -0,0 +1,64 @@
+package com.smalldogg.study.querydsl.metrics;
+
+import com.p6spy.engine.common.PreparedStatementInformation;
+import com.p6spy.engine.common.ResultSetInformation;
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.JdbcEventListener;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+
+/**
+ * 실행된 SQL 을 QueryCounter 에, SQL 수/시간과 fetch 한 row 수를 PersistenceCost 에 기록한다.
+ * 배치는 한 번의 왕복으로 센다.
+ */
+@Component
+public class QueryCountListener extends JdbcEventListener {
+
+    @Override
+    public void onAfterExecuteQuery(PreparedStatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        record(statementInformation.getSql(), timeElapsedNanos);
+    }
+
+    @Override
+    public void onAfterExecuteQuery(StatementInformation statementInformation, long timeElapsedNanos, String sql, SQLException e) {
+        record(sql, timeElapsedNanos);
+    }
+
+    @Override
+    public void onAfterExecuteUpdate(PreparedStatementInformation statementInformation, long timeElapsedNanos, int rowCount, SQLException e) {
+        record(statementInformation.getSql(), timeElapsedNanos);
+    }
+
+    @Override
+    public void onAfterExecuteUpdate(StatementInformation statementInformation, long timeElapsedNanos, String sql, int rowCount, SQLException e) {
+        record(sql, timeElapsedNanos);
+    }
+
+    @Override
+    public void onAfterExecuteBatch(StatementInformation statementInformation, long timeElapsedNanos, int[] updateCounts, SQLException e) {
+        record(statementInformation.getSql(), timeElapsedNanos);
+    }
+
+    @Override
+    public void onAfterExecute(PreparedStatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        record(statementInformation.getSql(), timeElapsedNanos);
+    }
+
+    @Override
+    public void onAfterExecute(StatementInformation statementInformation, long timeElapsedNanos, String sql, SQLException e) {
+        record(sql, timeElapsedNanos);
+    }
+
+    @Override
+    public void onAfterResultSetNext(ResultSetInformation resultSetInformation, long timeElapsedNanos, boolean hasNext, SQLException e) {
+        if (hasNext) {
+            PersistenceCost.rowFetched();
+        }
+    }
+
+    private void record(String sql, long timeElapsedNanos) {
+        QueryCounter.record(sql);
+        PersistenceCost.statementExecuted(timeElapsedNanos);
+    }
+}
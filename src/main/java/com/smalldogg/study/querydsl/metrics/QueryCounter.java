@@ -0,0 +1,89 @@
+package com.smalldogg.study.querydsl.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 현재 스레드에서 실행된 SQL 을 세는 카운터 (요청 단위, 테스트 단위)
+ * SQL 은 바인딩 전 문자열(? 포함)로 구분하므로, 바인딩 값만 다른 같은 SQL 이
+ * threshold 번 이상 실행되면 N+1 로 본다.
+ * 다른 스레드(executor)에서 실행된 SQL 은 세지 않는다.
+ */
+public final class QueryCounter {
+
+    public static final int DEFAULT_REPEAT_THRESHOLD = 3;
+
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+
+    private QueryCounter() {
+    }
+
+    /**
+     * 새 범위를 연다. 범위가 중첩되면 바깥 범위에도 함께 기록된다.
+     */
+    public static Scope open() {
+        Scope scope = new Scope(CURRENT.get());
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    static void record(String sql) {
+        for (Scope scope = CURRENT.get(); scope != null; scope = scope.parent) {
+            scope.add(sql);
+        }
+    }
+
+    public static final class Scope implements AutoCloseable {
+        private final Scope parent;
+        private final Map<String, Integer> statements = new LinkedHashMap<>();
+        private int count;
+        private boolean closed;
+
+        private Scope(Scope parent) {
+            this.parent = parent;
+        }
+
+        private void add(String sql) {
+            count++;
+            statements.merge(sql, 1, Integer::sum);
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public Map<String, Integer> getStatements() {
+            return statements;
+        }
+
+        public Map<String, Integer> getRepeated() {
+            return getRepeated(DEFAULT_REPEAT_THRESHOLD);
+        }
+
+        //threshold 번 이상 실행된 SQL 과 실행 횟수
+        public Map<String, Integer> getRepeated(int threshold) {
+            Map<String, Integer> repeated = new LinkedHashMap<>();
+            statements.forEach((sql, times) -> {
+                if (times >= threshold) {
+                    repeated.put(sql, times);
+                }
+            });
+            return repeated;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (CURRENT.get() == this) {
+                if (parent == null) {
+                    CURRENT.remove();
+                } else {
+                    CURRENT.set(parent);
+                }
+            }
+        }
+    }
+}
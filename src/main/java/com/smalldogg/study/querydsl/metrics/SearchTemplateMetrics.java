@@ -0,0 +1,33 @@
+package com.smalldogg.study.querydsl.metrics;
+
+import com.smalldogg.study.querydsl.repository.MemberSearchTemplates;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * MemberSearchTemplates 의 템플릿 재사용(hit)/컴파일(miss) 횟수를 Micrometer counter 로 등록한다. (계속 늘어나는 값이라 rate/increase 로 볼 수 있게)
+ * /actuator/metrics/member.search.templates?tag=result:hit 로 조회할 수 있다.
+ * MeterRegistry 가 EntityManagerFactory 보다 먼저 만들어지므로 MemberSearchTemplates 는 값을 읽을 때 꺼내온다.
+ */
+@Component
+@RequiredArgsConstructor
+public class SearchTemplateMetrics implements MeterBinder {
+
+    public static final String METER_NAME = "member.search.templates";
+
+    private final ObjectProvider<MemberSearchTemplates> searchTemplates;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder(METER_NAME, searchTemplates, templates -> templates.getObject().getHitCount())
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder(METER_NAME, searchTemplates, templates -> templates.getObject().getMissCount())
+                .tag("result", "miss")
+                .register(registry);
+    }
+}
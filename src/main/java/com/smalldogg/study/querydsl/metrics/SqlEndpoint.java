@@ -0,0 +1,47 @@
+package com.smalldogg.study.querydsl.metrics;
+
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * SQL 메트릭에 태그로 붙일 현재 요청의 엔드포인트 (매핑된 uri 패턴)
+ * executor 스레드에서는 요청 정보가 없으므로 taskDecorator 로 제출 시점의 값을 넘겨준다.
+ */
+public final class SqlEndpoint {
+
+    public static final String NONE = "none";
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private SqlEndpoint() {
+    }
+
+    public static String current() {
+        String endpoint = CURRENT.get();
+        if (endpoint != null) {
+            return endpoint;
+        }
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return NONE;
+        }
+        Object pattern = attributes.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        return pattern != null ? pattern.toString() : NONE;
+    }
+
+    public static TaskDecorator taskDecorator() {
+        return runnable -> {
+            String endpoint = current();
+            return () -> {
+                CURRENT.set(endpoint);
+                try {
+                    runnable.run();
+                } finally {
+                    CURRENT.remove();
+                }
+            };
+        };
+    }
+}
@@ -0,0 +1,152 @@
+package com.smalldogg.study.querydsl.metrics;
+
+import com.p6spy.engine.common.PreparedStatementInformation;
+import com.p6spy.engine.common.ResultSetInformation;
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.JdbcEventListener;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * p6spy 이벤트로 SQL 실행 시간과 fetch 시간(ResultSet.next 합계)을 측정해 Micrometer Timer 로 기록한다.
+ * 태그 : phase(execute, fetch), category(search, count, write, other), endpoint(uri 패턴)
+ * 요약 테이블(member_team_age_count)의 sum 조회도 count 로 분류한다. (count 쿼리 대신 실행되므로)
+ * Timer 는 태그 조합별로 한 번만 등록하고 이후에는 꺼내 쓴다.
+ * /actuator/metrics/sql.latency 와 sql.latency.percentile(phi=0.5, 0.99) 로 조회할 수 있다.
+ * MeterRegistry 를 바로 주입받으면 DataSource 가 p6spy 로 감싸지기 전에 생성되므로 처음 기록할 때 꺼내온다.
+ */
+@Component
+@RequiredArgsConstructor
+public class SqlLatencyListener extends JdbcEventListener {
+
+    public static final String METER_NAME = "sql.latency";
+
+    private static final String SUMMARY_TABLE = "member_team_age_count";
+
+    private final ObjectProvider<MeterRegistry> registry;
+    private final Map<ResultSetInformation, Long> fetchNanos = new ConcurrentHashMap<>();
+    private final Map<TimerKey, Timer> timers = new ConcurrentHashMap<>();
+
+    @Override
+    public void onAfterExecuteQuery(PreparedStatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        record("execute", statementInformation.getSql(), timeElapsedNanos);
+    }
+
+    @Override
+    public void onAfterExecuteQuery(StatementInformation statementInformation, long timeElapsedNanos, String sql, SQLException e) {
+        record("execute", sql, timeElapsedNanos);
+    }
+
+    @Override
+    public void onAfterExecuteUpdate(PreparedStatementInformation statementInformation, long timeElapsedNanos, int rowCount, SQLException e) {
+        record("execute", statementInformation.getSql(), timeElapsedNanos);
+    }
+
+    @Override
+    public void onAfterExecuteUpdate(StatementInformation statementInformation, long timeElapsedNanos, String sql, int rowCount, SQLException e) {
+        record("execute", sql, timeElapsedNanos);
+    }
+
+    @Override
+    public void onAfterExecuteBatch(StatementInformation statementInformation, long timeElapsedNanos, int[] updateCounts, SQLException e) {
+        record("execute", statementInformation.getSql(), timeElapsedNanos);
+    }
+
+    @Override
+    public void onAfterExecute(PreparedStatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        record("execute", statementInformation.getSql(), timeElapsedNanos);
+    }
+
+    @Override
+    public void onAfterExecute(StatementInformation statementInformation, long timeElapsedNanos, String sql, SQLException e) {
+        record("execute", sql, timeElapsedNanos);
+    }
+
+    @Override
+    public void onAfterResultSetNext(ResultSetInformation resultSetInformation, long timeElapsedNanos, boolean hasNext, SQLException e) {
+        fetchNanos.merge(resultSetInformation, timeElapsedNanos, Long::sum);
+    }
+
+    @Override
+    public void onAfterResultSetClose(ResultSetInformation resultSetInformation, SQLException e) {
+        Long nanos = fetchNanos.remove(resultSetInformation);
+        if (nanos != null) {
+            record("fetch", resultSetInformation.getSql(), nanos);
+        }
+    }
+
+    private void record(String phase, String sql, long nanos) {
+        timers.computeIfAbsent(new TimerKey(phase, category(sql), SqlEndpoint.current()), this::register)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer register(TimerKey key) {
+        return Timer.builder(METER_NAME)
+                .tag("phase", key.phase)
+                .tag("category", key.category)
+                .tag("endpoint", key.endpoint)
+                .publishPercentiles(0.5, 0.99)
+                .register(registry.getObject());
+    }
+
+    static String category(String sql) {
+        if (sql == null) {
+            return "other";
+        }
+        String s = skipLeadingComments(sql);
+        if (startsWithIgnoreCase(s, "select count(")) {
+            return "count";
+        }
+        if (startsWithIgnoreCase(s, "select")) {
+            return s.contains(SUMMARY_TABLE) ? "count" : "search";
+        }
+        if (startsWithIgnoreCase(s, "insert") || startsWithIgnoreCase(s, "update") || startsWithIgnoreCase(s, "delete")
+                || startsWithIgnoreCase(s, "merge")) {
+            return "write";
+        }
+        return "other";
+    }
+
+    //hibernate.use_sql_comments 를 켜면 SQL 앞에 /* ... */ 주석이 붙는다. (-- 주석도 건너뛴다)
+    private static String skipLeadingComments(String sql) {
+        String s = sql.stripLeading();
+        while (true) {
+            if (s.startsWith("/*")) {
+                int end = s.indexOf("*/", 2);
+                if (end < 0) {
+                    return "";
+                }
+                s = s.substring(end + 2).stripLeading();
+            } else if (s.startsWith("--")) {
+                int end = s.indexOf('\n');
+                if (end < 0) {
+                    return "";
+                }
+                s = s.substring(end + 1).stripLeading();
+            } else {
+                return s;
+            }
+        }
+    }
+
+    private static boolean startsWithIgnoreCase(String s, String prefix) {
+        return s.regionMatches(true, 0, prefix, 0, prefix.length());
+    }
+
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    private static class TimerKey {
+        private final String phase;
+        private final String category;
+        private final String endpoint;
+    }
+}
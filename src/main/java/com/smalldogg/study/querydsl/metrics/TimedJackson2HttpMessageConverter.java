@@ -0,0 +1,92 @@
+package com.smalldogg.study.querydsl.metrics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+
+/**
+ * PersistenceCost 를 모으는 요청에서 JSON 직렬화 시간을 재고 Server-Timing 헤더를 붙인다.
+ * 응답을 버퍼에 모으지 않고, Jackson 이 처음 바이트를 내보내는 순간 헤더를 붙인 뒤 그대로 흘려보낸다.
+ * (헤더는 본문보다 먼저 나가야 하므로)
+ * Jackson 의 버퍼(약 8KB)에 다 들어가는 응답은 직렬화가 끝난 뒤에 처음 내보내므로 전체 시간이 기록되고,
+ * 그보다 큰 응답은 첫 청크까지의 시간이 기록된다.
+ */
+public class TimedJackson2HttpMessageConverter extends MappingJackson2HttpMessageConverter {
+
+    public TimedJackson2HttpMessageConverter(ObjectMapper objectMapper) {
+        super(objectMapper);
+    }
+
+    @Override
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+        PersistenceCost cost = PersistenceCost.current();
+        if (cost == null) {
+            super.writeInternal(object, type, outputMessage);
+            return;
+        }
+
+        TimingBody body = new TimingBody(outputMessage, cost);
+        super.writeInternal(object, type, new HttpOutputMessage() {
+            @Override
+            public OutputStream getBody() {
+                return body;
+            }
+
+            @Override
+            public HttpHeaders getHeaders() {
+                return outputMessage.getHeaders();
+            }
+        });
+        body.open();
+    }
+
+    /**
+     * 처음 쓰거나 flush 할 때 직렬화 시간을 기록하고 헤더를 붙인 다음 실제 응답 본문을 연다.
+     * (ServletServerHttpResponse 는 getBody() 를 호출할 때 헤더를 내보낸다)
+     */
+    private static class TimingBody extends OutputStream {
+        private final HttpOutputMessage outputMessage;
+        private final PersistenceCost cost;
+        private final long start = System.nanoTime();
+        private OutputStream target;
+
+        TimingBody(HttpOutputMessage outputMessage, PersistenceCost cost) {
+            this.outputMessage = outputMessage;
+            this.cost = cost;
+        }
+
+        OutputStream open() throws IOException {
+            if (target == null) {
+                cost.serialized(System.nanoTime() - start);
+                outputMessage.getHeaders().set(PersistenceCost.SERVER_TIMING, cost.toServerTiming());
+                target = outputMessage.getBody();
+            }
+            return target;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            open().write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            open().write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            open().flush();
+        }
+
+        //응답 스트림은 컨테이너가 닫는다.
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -2,17 +2,34 @@ package com.smalldogg.study.querydsl.repository;
 
 import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.smalldogg.study.querydsl.cache.MemberDataChangePublisher;
 import com.smalldogg.study.querydsl.dto.MemberSearchCondition;
 import com.smalldogg.study.querydsl.dto.MemberTeamDto;
 import com.smalldogg.study.querydsl.dto.QMemberTeamDto;
 import com.smalldogg.study.querydsl.entity.Member;
+import com.smalldogg.study.querydsl.entity.Team;
+import com.smalldogg.study.querydsl.repository.support.InClause;
+import com.smalldogg.study.querydsl.repository.support.ReadOnlyQuery;
+import com.smalldogg.study.querydsl.summary.MemberCountSummary;
+import org.hibernate.Hibernate;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import static com.smalldogg.study.querydsl.entity.QMember.*;
 import static com.smalldogg.study.querydsl.entity.QTeam.*;
@@ -22,40 +39,115 @@ import static org.springframework.util.StringUtils.*;
 @Repository
 public class MemberJpaRepository {
 
+    private static final int STREAM_FETCH_SIZE = 500;
+
     @PersistenceContext
     private EntityManager em;
     private final JPAQueryFactory queryFactory;
+    private final MemberDataChangePublisher changePublisher;
+    private final MemberCountSummary countSummary;
+    private final int batchSize;
 
-    public MemberJpaRepository(JPAQueryFactory queryFactory) {
+    public MemberJpaRepository(JPAQueryFactory queryFactory,
+                               MemberDataChangePublisher changePublisher,
+                               MemberCountSummary countSummary,
+                               @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:100}") int batchSize) {
         this.queryFactory = queryFactory;
+        this.changePublisher = changePublisher;
+        this.countSummary = countSummary;
+        this.batchSize = batchSize;
     }
 
     public void save(Member member) {
         em.persist(member);
     }
 
+    /**
+     * 대량 저장
+     * JDBC batch 크기만큼 persist 한 뒤 flush 해서 insert 를 batch 로 묶고,
+     * 저장한 Member 만 준영속 상태로 만들어 영속성 컨텍스트가 커지지 않게 한다. (호출한 쪽의 다른 엔티티는 그대로)
+     * 저장한 Member 는 Team.members(연관관계의 주인이 아닌 쪽)에서도 뺀다. 영속 상태로 남는 Team 이 저장한 Member 를 계속 참조하지 않도록.
+     * (같은 트랜잭션에서 team.getMembers() 에는 보이지 않으므로 필요하면 다시 조회한다)
+     * 변경 이벤트(캐시 무효화)는 끝날 때 한 번, 요약 테이블(MemberCountSummary)은 flush 마다 (팀, 나이)별로 합쳐서 갱신한다.
+     */
+    @Transactional
+    public void saveAll(Iterable<Member> members) {
+        try (MemberDataChangePublisher.Batch events = changePublisher.openBatch();
+             MemberCountSummary.Batch summary = countSummary.openBatch()) {
+            persistInChunks(members, chunk -> {
+                summary.flush();
+                removeFromTeams(chunk);
+            });
+        }
+    }
+
+    //Team 대량 저장 (saveAll 과 같은 방식, 저장한 Team 은 준영속 상태가 된다)
+    @Transactional
+    public void saveAllTeams(Iterable<Team> teams) {
+        try (MemberDataChangePublisher.Batch events = changePublisher.openBatch()) {
+            persistInChunks(teams, chunk -> {
+            });
+        }
+    }
+
+    private <T> void persistInChunks(Iterable<T> entities, Consumer<List<T>> afterFlush) {
+        List<T> chunk = new ArrayList<>(batchSize);
+        for (T entity : entities) {
+            em.persist(entity);
+            chunk.add(entity);
+            if (chunk.size() == batchSize) {
+                flushChunk(chunk, afterFlush);
+            }
+        }
+        flushChunk(chunk, afterFlush);
+    }
+
+    private <T> void flushChunk(List<T> chunk, Consumer<List<T>> afterFlush) {
+        em.flush();
+        afterFlush.accept(chunk);
+        chunk.forEach(em::detach);
+        chunk.clear();
+    }
+
+    //로딩된 Team.members 에서 팀별로 한 번에 뺀다. (로딩되지 않은 컬렉션은 flush 때 추가 대기열이 비워진다)
+    private void removeFromTeams(List<Member> chunk) {
+        Map<Team, Set<Member>> byTeam = new HashMap<>();
+        for (Member saved : chunk) {
+            Team memberTeam = saved.getTeam();
+            if (memberTeam != null && Hibernate.isInitialized(memberTeam) && Hibernate.isInitialized(memberTeam.getMembers())) {
+                byTeam.computeIfAbsent(memberTeam, key -> new HashSet<>()).add(saved);
+            }
+        }
+        byTeam.forEach((memberTeam, saved) -> memberTeam.getMembers().removeAll(saved));
+    }
+
+    @Transactional(readOnly = true)
     public Optional<Member> findById(Long id) {
         Member findMember = em.find(Member.class, id);
         return Optional.ofNullable(findMember);
     }
 
+    //조회 전용 : 엔티티 스냅샷을 만들지 않는다. (ReadOnlyQuery)
+    @Transactional(readOnly = true)
     public List<Member> findAll() {
-        return em.createQuery("select m from Member m", Member.class)
+        return ReadOnlyQuery.of(em.createQuery("select m from Member m", Member.class))
                 .getResultList();
     }
 
+    @Transactional(readOnly = true)
     public List<Member> findAll_Querydsl() {
-        return queryFactory
-                .selectFrom(member)
+        return ReadOnlyQuery.of(queryFactory.selectFrom(member))
                 .fetch();
     }
 
+    @Transactional(readOnly = true)
     public List<Member> findByUsername(String username) {
         return em.createQuery("select m from Member m where m.username=:username", Member.class)
                 .setParameter("username", username)
                 .getResultList();
     }
 
+    @Transactional(readOnly = true)
     public List<Member> findByUsername_Querydsl(String username) {
         return queryFactory
                 .selectFrom(member)
@@ -63,6 +155,7 @@ public class MemberJpaRepository {
                 .fetch();
     }
 
+    @Transactional(readOnly = true)
     public List<MemberTeamDto> searchByBuilder(MemberSearchCondition condition) {
         BooleanBuilder builder = new BooleanBuilder();
         if (hasText(condition.getUsername())) {
@@ -77,6 +170,9 @@ public class MemberJpaRepository {
         if (condition.getAgeLoe() != null) {
             builder.and(member.age.loe(condition.getAgeLoe()));
         }
+        builder.and(usernameIn(condition.getUsernames()));
+        builder.and(teamNameIn(condition.getTeamNames()));
+        builder.and(teamIdIn(condition.getTeamIds()));
 
 
         return queryFactory
@@ -93,7 +189,28 @@ public class MemberJpaRepository {
                 .fetch();
     }
 
+    @Transactional(readOnly = true)
     public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        return searchQuery(condition).fetch();
+    }
+
+    /**
+     * search 와 같은 조건을 forward-only 커서로 읽어 id 순으로 한 건씩 consumer 에 넘긴다.
+     * 결과를 리스트로 모으지 않으므로 결과 건수와 상관없이 메모리 사용량이 일정하다.
+     * DTO 프로젝션이라 영속성 컨텍스트에 엔티티가 쌓이지 않는다.
+     */
+    @Transactional(readOnly = true)
+    public void searchStream(MemberSearchCondition condition, Consumer<MemberTeamDto> consumer) {
+        try (Stream<MemberTeamDto> stream = searchQuery(condition)
+                .orderBy(member.id.asc())
+                .setHint(QueryHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE)
+                .setHint(QueryHints.HINT_READONLY, true)
+                .stream()) {
+            stream.forEach(consumer);
+        }
+    }
+
+    private JPAQuery<MemberTeamDto> searchQuery(MemberSearchCondition condition) {
         return queryFactory
                 .select(new QMemberTeamDto(
                         member.id.as("memberId"),
@@ -108,15 +225,17 @@ public class MemberJpaRepository {
                         usernameEq(condition.getUsername()),
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                )
-                .fetch();
+                        ageLoe(condition.getAgeLoe()),
+                        usernameIn(condition.getUsernames()),
+                        teamNameIn(condition.getTeamNames()),
+                        teamIdIn(condition.getTeamIds())
+                );
     }
 
     //재사용성 및 Composition
+    @Transactional(readOnly = true)
     public List<Member> searchMember(MemberSearchCondition condition) {
-        return queryFactory
-                .selectFrom(member)
+        return ReadOnlyQuery.of(queryFactory.selectFrom(member))
                 .leftJoin(member.team, team)
                 .where(
                         usernameEq(condition.getUsername()),
@@ -148,4 +267,16 @@ public class MemberJpaRepository {
     private BooleanExpression ageLoe(Integer ageLoe) {
         return ageLoe!=null?member.age.loe(ageLoe):null;
     }
+
+    private BooleanExpression usernameIn(List<String> usernames) {
+        return InClause.in(member.username, usernames);
+    }
+
+    private BooleanExpression teamNameIn(List<String> teamNames) {
+        return InClause.in(team.name, teamNames);
+    }
+
+    private BooleanExpression teamIdIn(List<Long> teamIds) {
+        return InClause.in(member.team.id, teamIds);
+    }
 }
@@ -1,9 +1,14 @@
 package com.smalldogg.study.querydsl.repository;
 
+import com.smalldogg.study.querydsl.dto.MemberColumns;
 import com.smalldogg.study.querydsl.dto.MemberSearchCondition;
 import com.smalldogg.study.querydsl.dto.MemberTeamDto;
+import com.smalldogg.study.querydsl.dto.TeamStatsCondition;
+import com.smalldogg.study.querydsl.dto.TeamStatsDto;
+import com.smalldogg.study.querydsl.repository.support.KeysetPage;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 import java.util.List;
 
@@ -11,4 +16,20 @@ public interface MemberRepositoryCustom {
     List<MemberTeamDto> search(MemberSearchCondition condition);
     Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable);
     Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable);
+    Page<MemberTeamDto> searchPageParallel(MemberSearchCondition condition, Pageable pageable);
+    //id 만 먼저 페이징한 뒤 그 id 로 content 조회 (깊은 offset 용)
+    Page<MemberTeamDto> searchPageDeferred(MemberSearchCondition condition, Pageable pageable);
+    //count 쿼리 없이 다음 페이지 여부만 확인 (무한 스크롤)
+    Slice<MemberTeamDto> searchSliceSimple(MemberSearchCondition condition, Pageable pageable);
+    Slice<MemberTeamDto> searchSliceComplex(MemberSearchCondition condition, Pageable pageable);
+    KeysetPage<MemberTeamDto> searchKeyset(MemberSearchCondition condition, Pageable pageable, String cursor);
+    //분석용 : 결과를 컬럼별 기본 타입 배열로 조회 (회원 id 순)
+    MemberColumns searchColumns(MemberSearchCondition condition);
+    //팀별(나이 구간별) 회원 수, 최소/평균/최대 나이
+    List<TeamStatsDto> teamStats(TeamStatsCondition condition);
+
+    //벌크 연산 : id 범위 청크 단위로 실행하고 영향받은 row 수를 반환
+    long bulkAddAge(MemberSearchCondition condition, int amount);
+    long bulkUpdateUsername(MemberSearchCondition condition, String username);
+    long bulkDelete(MemberSearchCondition condition);
 }
@@ -1,55 +1,193 @@
 package com.smalldogg.study.querydsl.repository;
 
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.NumberExpression;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.smalldogg.study.querydsl.cache.MemberCountCache;
+import com.smalldogg.study.querydsl.cache.MemberDataChangePublisher;
+import com.smalldogg.study.querydsl.cache.MemberSearchCache;
+import com.smalldogg.study.querydsl.cache.TeamStatsCache;
+import com.smalldogg.study.querydsl.dto.MemberColumns;
 import com.smalldogg.study.querydsl.dto.MemberSearchCondition;
 import com.smalldogg.study.querydsl.dto.MemberTeamDto;
 import com.smalldogg.study.querydsl.dto.QMemberTeamDto;
+import com.smalldogg.study.querydsl.dto.QTeamStatsDto;
+import com.smalldogg.study.querydsl.dto.TeamStatsCondition;
+import com.smalldogg.study.querydsl.dto.TeamStatsDto;
 import com.smalldogg.study.querydsl.entity.Member;
+import com.smalldogg.study.querydsl.entity.Team;
+import com.smalldogg.study.querydsl.repository.support.ColumnarQuery;
+import com.smalldogg.study.querydsl.repository.support.InClause;
+import com.smalldogg.study.querydsl.repository.support.KeysetPage;
+import com.smalldogg.study.querydsl.repository.support.Querydsl4RepositorySupport;
+import com.smalldogg.study.querydsl.summary.MemberCountSummary;
+import org.hibernate.Hibernate;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToLongFunction;
 
 import static com.smalldogg.study.querydsl.entity.QMember.member;
 import static com.smalldogg.study.querydsl.entity.QTeam.team;
 import static org.springframework.util.StringUtils.hasText;
 
-public class MemberRepositoryImpl implements MemberRepositoryCustom{
+public class MemberRepositoryImpl extends Querydsl4RepositorySupport implements MemberRepositoryCustom{
+
+    private static final int MAX_AGE_BUCKET_SIZE = 100;
+    //keysetKey 로 꺼낼 수 있는 정렬 속성
+    private static final Set<String> KEYSET_SORT_PROPERTIES = Set.of("id", "username", "age");
 
     private final JPAQueryFactory queryFactory;
+    private final MemberCountCache countCache;
+    private final MemberSearchCache searchCache;
+    private final TeamStatsCache teamStatsCache;
+    private final MemberSearchTemplates searchTemplates;
+    private final MemberDataChangePublisher changePublisher;
+    private final MemberCountSummary countSummary;
+    private final TransactionTemplate transactionTemplate;
+    private final int bulkChunkSize;
 
-    public MemberRepositoryImpl(JPAQueryFactory queryFactory) {
+    public MemberRepositoryImpl(JPAQueryFactory queryFactory,
+                                MemberCountCache countCache,
+                                MemberSearchCache searchCache,
+                                TeamStatsCache teamStatsCache,
+                                MemberSearchTemplates searchTemplates,
+                                MemberDataChangePublisher changePublisher,
+                                MemberCountSummary countSummary,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${member.bulk.chunk-size:1000}") int bulkChunkSize) {
+        super(Member.class);
         this.queryFactory = queryFactory;
+        this.countCache = countCache;
+        this.searchCache = searchCache;
+        this.teamStatsCache = teamStatsCache;
+        this.searchTemplates = searchTemplates;
+        this.changePublisher = changePublisher;
+        this.countSummary = countSummary;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.bulkChunkSize = bulkChunkSize;
     }
 
+    //검색 조건 모양별로 미리 만들어 둔 JPQL 에 파라미터만 바인딩한다. (MemberSearchTemplates)
+    //결과는 MemberSearchCache 에 캐시하고, 데이터가 바뀌면 비운다.
     @Override
+    @Transactional(readOnly = true)
     public List<MemberTeamDto> search(MemberSearchCondition condition) {
-        return queryFactory
-                .select(new QMemberTeamDto(
-                        member.id.as("memberId"),
-                        member.username,
-                        member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")
-                ))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(
-                        usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                )
-                .fetch();
+        return searchCache.search(condition, () -> searchTemplates.search(condition));
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
-        List<MemberTeamDto> result = queryFactory
+        return searchCache.searchPage("searchPageSimple", condition, pageable, () -> {
+            List<MemberTeamDto> result = searchTemplates.search(condition, pageable);
+            long total = countCache.get(condition, () -> searchTemplates.count(condition));
+
+            return new PageImpl<>(result, pageable, total);
+        });
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        return searchCache.searchPage("searchPageComplex", condition, pageable, () -> {
+            List<MemberTeamDto> content = searchTemplates.search(condition, pageable);
+
+            return PageableExecutionUtils.getPage(content, pageable,
+                    () -> countCache.get(condition, () -> searchTemplates.count(condition)));
+        });
+    }
+
+    //content 와 count 를 서로 다른 커넥션에서 동시에 실행
+    @Override
+    @Transactional(readOnly = true)
+    public Page<MemberTeamDto> searchPageParallel(MemberSearchCondition condition, Pageable pageable) {
+        return searchCache.searchPage("searchPageParallel", condition, pageable, () -> fetchPageInParallel(pageable,
+                () -> searchTemplates.search(condition, pageable),
+                () -> countCache.get(condition, () -> searchTemplates.count(condition))));
+    }
+
+    /**
+     * deferred join : offset 으로 건너뛰는 row 는 member.id 만 읽는다.
+     * id 쿼리는 (정규화한 조건에) team 조건이 있을 때만 team 을 (inner) join 하고, content 는 그 페이지의 id 로만 조회한다.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Page<MemberTeamDto> searchPageDeferred(MemberSearchCondition condition, Pageable pageable) {
+        return searchCache.searchPage("searchPageDeferred", condition, pageable, () -> applyDeferredPagination(pageable,
+                deferredIdQuery(condition.normalize()),
+                ids -> queryFactory
+                        .select(new QMemberTeamDto(
+                                member.id.as("memberId"),
+                                member.username,
+                                member.age,
+                                team.id.as("teamId"),
+                                team.name.as("teamName")
+                        ))
+                        .from(member)
+                        .leftJoin(member.team, team)
+                        .where(InClause.in(member.id, ids))
+                        .fetch(),
+                MemberTeamDto::getMemberId,
+                () -> countCache.get(condition, () -> searchTemplates.count(condition))));
+    }
+
+    //빈 문자열, 빈 리스트는 normalize() 에서 null 이 되므로 실제로 거르는 조건만 보고 join 한다.
+    private JPAQuery<Long> deferredIdQuery(MemberSearchCondition normalized) {
+        JPAQuery<Long> idQuery = queryFactory
+                .select(member.id)
+                .from(member);
+        if (normalized.getTeamName() != null || normalized.getTeamNames() != null) {
+            idQuery.join(member.team, team);
+        }
+        return idQuery.where(
+                usernameEq(normalized.getUsername()),
+                teamNameEq(normalized.getTeamName()),
+                ageGoe(normalized.getAgeGoe()),
+                ageLoe(normalized.getAgeLoe()),
+                usernameIn(normalized.getUsernames()),
+                teamNameIn(normalized.getTeamNames()),
+                teamIdIn(normalized.getTeamIds())
+        );
+    }
+
+    //미리 컴파일한 검색 쿼리(member.id 순)로 pageSize + 1 건 조회, 정렬 조건이 있으면 searchSliceComplex 로 조회
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<MemberTeamDto> searchSliceSimple(MemberSearchCondition condition, Pageable pageable) {
+        if (pageable.getSort().isSorted()) {
+            return searchSliceComplex(condition, pageable);
+        }
+        return searchCache.searchSlice("searchSliceSimple", condition, pageable, () -> toSlice(
+                searchTemplates.search(condition, pageable.getOffset(), pageable.getPageSize() + 1),
+                pageable));
+    }
+
+    //pageable 의 정렬 조건(Member 속성)을 적용하는 Slice
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<MemberTeamDto> searchSliceComplex(MemberSearchCondition condition, Pageable pageable) {
+        return searchCache.searchSlice("searchSliceComplex", condition, pageable, () -> applySlice(pageable, query -> query
                 .select(new QMemberTeamDto(
                         member.id.as("memberId"),
                         member.username,
@@ -63,70 +201,281 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom{
                         usernameEq(condition.getUsername()),
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                )
-                .offset(pageable.getOffset())
-                .limit(pageable.getPageSize())
-                .fetch();
+                        ageLoe(condition.getAgeLoe()),
+                        usernameIn(condition.getUsernames()),
+                        teamNameIn(condition.getTeamNames()),
+                        teamIdIn(condition.getTeamIds())
+                )));
+    }
 
-        JPAQuery<Long> countQuery = queryFactory
-                .select(member.count())
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                );
+    @Override
+    @Transactional(readOnly = true)
+    public KeysetPage<MemberTeamDto> searchKeyset(MemberSearchCondition condition, Pageable pageable, String cursor) {
+        for (Sort.Order order : pageable.getSort()) {
+            if (!KEYSET_SORT_PROPERTIES.contains(order.getProperty())) {
+                throw new IllegalArgumentException("Unsupported keyset sort property: " + order.getProperty());
+            }
+        }
+        return applyKeysetPagination(pageable, cursor, query -> query
+                        .select(new QMemberTeamDto(
+                                member.id.as("memberId"),
+                                member.username,
+                                member.age,
+                                team.id.as("teamId"),
+                                team.name.as("teamName")
+                        ))
+                        .from(member)
+                        .leftJoin(member.team, team)
+                        .where(
+                                usernameEq(condition.getUsername()),
+                                teamNameEq(condition.getTeamName()),
+                                ageGoe(condition.getAgeGoe()),
+                                ageLoe(condition.getAgeLoe()),
+                                usernameIn(condition.getUsernames()),
+                                teamNameIn(condition.getTeamNames()),
+                                teamIdIn(condition.getTeamIds())
+                        ),
+                this::keysetKey);
+    }
 
-        return new PageImpl<>(result, pageable,countQuery.fetchOne());
+    @Override
+    @Transactional(readOnly = true)
+    public MemberColumns searchColumns(MemberSearchCondition condition) {
+        return fetchColumns(queryFactory
+                        .select(member.id, member.age, team.id, team.name)
+                        .from(member)
+                        .leftJoin(member.team, team)
+                        .where(
+                                usernameEq(condition.getUsername()),
+                                teamNameEq(condition.getTeamName()),
+                                ageGoe(condition.getAgeGoe()),
+                                ageLoe(condition.getAgeLoe()),
+                                usernameIn(condition.getUsernames()),
+                                teamNameIn(condition.getTeamNames()),
+                                teamIdIn(condition.getTeamIds())
+                        )
+                        .orderBy(member.id.asc()),
+                new MemberColumnsReader());
     }
 
+    /**
+     * group by team.name (, 나이 구간) 한 번으로 집계한다. 결과는 Member/Team 이 바뀔 때까지 캐시한다.
+     * 나이 구간은 age - mod(age, 구간 크기) 로 구한다. select 와 group by 의 식이 같아야 하므로
+     * 구간 크기는 바인딩 파라미터가 아니라 리터럴로 넣는다. (쿼리 플랜 캐시가 커지지 않게 최대값을 둔다)
+     */
     @Override
-    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
-        List<MemberTeamDto> content = queryFactory
-                .select(new QMemberTeamDto(
-                        member.id.as("memberId"),
-                        member.username,
-                        member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")
-                ))
+    @Transactional(readOnly = true)
+    public List<TeamStatsDto> teamStats(TeamStatsCondition condition) {
+        Integer bucketSize = condition.getAgeBucketSize();
+        if (bucketSize != null && (bucketSize <= 0 || bucketSize > MAX_AGE_BUCKET_SIZE)) {
+            throw new IllegalArgumentException("ageBucketSize must be between 1 and " + MAX_AGE_BUCKET_SIZE + ": " + bucketSize);
+        }
+        return teamStatsCache.get(condition, () -> {
+            NumberExpression<Integer> ageBucket = bucketSize == null ? null
+                    : Expressions.numberTemplate(Integer.class, "{0} - mod({0}, " + bucketSize + ")", member.age);
+
+            QTeamStatsDto projection = ageBucket == null
+                    ? new QTeamStatsDto(team.name, member.count(), member.age.min(), member.age.avg(), member.age.max())
+                    : new QTeamStatsDto(team.name, ageBucket, member.count(), member.age.min(), member.age.avg(), member.age.max());
+
+            JPAQuery<TeamStatsDto> query = queryFactory
+                    .select(projection)
+                    .from(member)
+                    .join(member.team, team)
+                    .groupBy(team.name)
+                    .having(
+                            memberCountGoe(condition.getMemberCountGoe()),
+                            avgAgeGoe(condition.getAvgAgeGoe()),
+                            avgAgeLoe(condition.getAvgAgeLoe())
+                    )
+                    .orderBy(team.name.asc());
+            if (ageBucket != null) {
+                query.groupBy(ageBucket).orderBy(ageBucket.asc());
+            }
+            return query.fetch();
+        });
+    }
+
+    @Override
+    public long bulkAddAge(MemberSearchCondition condition, int amount) {
+        return bulkInChunks(condition, ids -> {
+            countSummary.beforeBulkAddAge(ids, amount);
+            return queryFactory
+                    .update(member)
+                    .set(member.age, member.age.add(amount))
+                    .where(member.id.in(ids))
+                    .execute();
+        });
+    }
+
+    @Override
+    public long bulkUpdateUsername(MemberSearchCondition condition, String username) {
+        return bulkInChunks(condition, ids -> queryFactory
+                .update(member)
+                .set(member.username, username)
+                .where(member.id.in(ids))
+                .execute());
+    }
+
+    @Override
+    public long bulkDelete(MemberSearchCondition condition) {
+        return bulkInChunks(condition, ids -> {
+            countSummary.beforeBulkDelete(ids);
+            removeFromLoadedTeams(ids);
+            return queryFactory
+                    .delete(member)
+                    .where(member.id.in(ids))
+                    .execute();
+        });
+    }
+
+    /**
+     * 조건에 맞는 회원 id 를 id 순으로 bulkChunkSize 만큼 잘라서 청크마다 벌크 연산을 실행한다.
+     * JPQL 벌크 연산은 조인을 쓸 수 없으므로 대상 id 는 검색 조건(팀 조인 포함)으로 먼저 조회한다.
+     * 호출한 쪽에 트랜잭션이 없으면 청크마다 커밋되어 락과 undo 로그가 청크 크기로 제한되고,
+     * 트랜잭션이 있으면 그 트랜잭션에 참여한다.
+     * 벌크 연산은 영속성 컨텍스트를 무시하므로 청크마다 먼저 flush 하고, 청크에 포함된 Member 만 영속성 컨텍스트에서 분리한다.
+     * 엔티티 리스너도 타지 않으므로 (팀, 나이)가 바뀌는 연산은 청크마다 MemberCountSummary 를 직접 갱신한다.
+     */
+    private long bulkInChunks(MemberSearchCondition condition, ToLongFunction<List<Long>> chunkOperation) {
+        long affected = 0;
+        Long lastId = null;
+        while (true) {
+            Long afterId = lastId;
+            BulkChunk chunk = transactionTemplate.execute(status -> {
+                getEntityManager().flush();
+                List<Long> ids = nextChunkIds(condition, afterId);
+                if (ids.isEmpty()) {
+                    return new BulkChunk(ids, 0);
+                }
+                long count = chunkOperation.applyAsLong(ids);
+                detachMembers(ids);
+                changePublisher.publish(Member.class);
+                return new BulkChunk(ids, count);
+            });
+
+            affected += chunk.affected;
+            if (chunk.ids.size() < bulkChunkSize) {
+                return affected;
+            }
+            lastId = chunk.ids.get(chunk.ids.size() - 1);
+        }
+    }
+
+    private List<Long> nextChunkIds(MemberSearchCondition condition, Long afterId) {
+        return queryFactory
+                .select(member.id)
                 .from(member)
                 .leftJoin(member.team, team)
                 .where(
                         usernameEq(condition.getUsername()),
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
+                        ageLoe(condition.getAgeLoe()),
+                        usernameIn(condition.getUsernames()),
+                        teamNameIn(condition.getTeamNames()),
+                        teamIdIn(condition.getTeamIds()),
+                        afterId != null ? member.id.gt(afterId) : null
                 )
-                .offset(pageable.getOffset())
-                .limit(pageable.getPageSize())
+                .orderBy(member.id.asc())
+                .limit(bulkChunkSize)
                 .fetch();
+    }
 
-//        Long count = queryFactory
-//                .select(member.count())
-//                .from(member)
-//                .leftJoin(member.team, team)
-//                .where(usernameEq(condition.getUsername()),
-//                        teamNameEq(condition.getTeamName()),
-//                        ageGoe(condition.getAgeGoe()),
-//                        ageLoe(condition.getAgeLoe())
-//                )
-//                .fetchOne();
-
-        JPAQuery<Long> countQuery = queryFactory
-                .select(member.count())
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                );
+    private void detachMembers(List<Long> ids) {
+        for (Member managed : managedMembers(ids)) {
+            getEntityManager().detach(managed);
+        }
+    }
+
+    //삭제할 Member 를 영속성 컨텍스트에 로딩된 Team.members 컬렉션에서 뺀다. (2차 캐시의 컬렉션은 벌크 연산 때 하이버네이트가 비운다)
+    private void removeFromLoadedTeams(List<Long> ids) {
+        for (Member managed : managedMembers(ids)) {
+            Team memberTeam = managed.getTeam();
+            if (memberTeam != null && Hibernate.isInitialized(memberTeam) && Hibernate.isInitialized(memberTeam.getMembers())) {
+                memberTeam.getMembers().remove(managed);
+            }
+        }
+    }
+
+    //영속성 컨텍스트에 이미 올라와 있는 Member 만 찾는다. (DB 조회 없음)
+    private List<Member> managedMembers(List<Long> ids) {
+        SessionImplementor session = getEntityManager().unwrap(SessionImplementor.class);
+        EntityPersister persister = session.getFactory().getMetamodel().entityPersister(Member.class);
+        List<Member> managed = new ArrayList<>();
+        for (Long id : ids) {
+            Object entity = session.getPersistenceContext().getEntity(session.generateEntityKey(id, persister));
+            if (entity != null) {
+                managed.add((Member) entity);
+            }
+        }
+        return managed;
+    }
+
+    private static class BulkChunk {
+        private final List<Long> ids;
+        private final long affected;
+
+        private BulkChunk(List<Long> ids, long affected) {
+            this.ids = ids;
+            this.affected = affected;
+        }
+    }
+
+    /**
+     * select member.id, member.age, team.id, team.name 결과를 배열에 채운다.
+     * 배열은 두 배씩 늘리고 마지막에 row 수만큼 잘라낸다. 팀 이름은 처음 나올 때만 사전에 넣는다.
+     */
+    private static class MemberColumnsReader implements ColumnarQuery.ColumnReader<MemberColumns> {
+        private long[] memberIds = new long[64];
+        private int[] ages = new int[64];
+        private long[] teamIds = new long[64];
+        private int[] teamNameCodes = new int[64];
+        private final Map<String, Integer> dictionary = new HashMap<>();
+        private final List<String> teamNames = new ArrayList<>();
+
+        @Override
+        public void read(ResultSet rs, int row) throws SQLException {
+            if (row == memberIds.length) {
+                int capacity = row * 2;
+                memberIds = Arrays.copyOf(memberIds, capacity);
+                ages = Arrays.copyOf(ages, capacity);
+                teamIds = Arrays.copyOf(teamIds, capacity);
+                teamNameCodes = Arrays.copyOf(teamNameCodes, capacity);
+            }
+            memberIds[row] = rs.getLong(1);
+            ages[row] = rs.getInt(2);
+            teamIds[row] = rs.getLong(3);
+            String teamName = rs.getString(4);
+            teamNameCodes[row] = teamName == null ? -1 : dictionary.computeIfAbsent(teamName, name -> {
+                teamNames.add(name);
+                return teamNames.size() - 1;
+            });
+        }
+
+        @Override
+        public MemberColumns result(int rows) {
+            return new MemberColumns(rows,
+                    Arrays.copyOf(memberIds, rows),
+                    Arrays.copyOf(ages, rows),
+                    Arrays.copyOf(teamIds, rows),
+                    Arrays.copyOf(teamNameCodes, rows),
+                    teamNames.toArray(new String[0]));
+        }
+    }
 
-        return PageableExecutionUtils.getPage(content, pageable, countQuery::fetchOne);
-//        return new PageImpl<>(result, pageable,count);
+    //정렬 속성(Member 기준) -> MemberTeamDto 값
+    private Object keysetKey(MemberTeamDto dto, String property) {
+        switch (property) {
+            case "id":
+                return dto.getMemberId();
+            case "username":
+                return dto.getUsername();
+            case "age":
+                return dto.getAge();
+            default:
+                throw new IllegalArgumentException("Unsupported keyset sort property: " + property);
+        }
     }
 
     private BooleanExpression usernameEq(String username) {
@@ -144,4 +493,28 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom{
     private BooleanExpression ageLoe(Integer ageLoe) {
         return ageLoe!=null?member.age.loe(ageLoe):null;
     }
+
+    private BooleanExpression memberCountGoe(Long memberCountGoe) {
+        return memberCountGoe != null ? member.count().goe(memberCountGoe) : null;
+    }
+
+    private BooleanExpression avgAgeGoe(Double avgAgeGoe) {
+        return avgAgeGoe != null ? member.age.avg().goe(avgAgeGoe) : null;
+    }
+
+    private BooleanExpression avgAgeLoe(Double avgAgeLoe) {
+        return avgAgeLoe != null ? member.age.avg().loe(avgAgeLoe) : null;
+    }
+
+    private BooleanExpression usernameIn(List<String> usernames) {
+        return InClause.in(member.username, usernames);
+    }
+
+    private BooleanExpression teamNameIn(List<String> teamNames) {
+        return InClause.in(team.name, teamNames);
+    }
+
+    private BooleanExpression teamIdIn(List<Long> teamIds) {
+        return InClause.in(member.team.id, teamIds);
+    }
 }
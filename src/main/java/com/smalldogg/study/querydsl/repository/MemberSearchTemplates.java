@@ -0,0 +1,279 @@
+package com.smalldogg.study.querydsl.repository;
+
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.ParamExpression;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.Param;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.smalldogg.study.querydsl.dto.MemberSearchCondition;
+import com.smalldogg.study.querydsl.dto.MemberTeamDto;
+import com.smalldogg.study.querydsl.dto.QMemberTeamDto;
+import com.smalldogg.study.querydsl.repository.support.InClause;
+import com.smalldogg.study.querydsl.repository.support.PrecompiledQuery;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import static com.smalldogg.study.querydsl.entity.QMember.member;
+import static com.smalldogg.study.querydsl.entity.QMemberTeamAgeCount.memberTeamAgeCount;
+import static com.smalldogg.study.querydsl.entity.QTeam.team;
+
+/**
+ * 검색 조건 모양(shape)별로 미리 컴파일한 회원 검색 쿼리
+ * MemberSearchCondition 의 단일 값 조건은 4개 필드의 설정 여부에 따라 16가지 모양만 가지므로
+ * 모양별로 JPQL 을 한 번만 만들고 이후에는 파라미터만 바인딩한다.
+ * 다중 값(IN) 조건은 InClause 청크 개수까지 모양에 포함한다. 청크 크기는 2의 거듭제곱으로 채워지므로
+ * 하이버네이트가 리스트 파라미터를 펼친 뒤의 SQL 도 몇 가지로 제한된다.
+ * 목록 쿼리는 member.id 순으로 정렬한다. (offset 으로 나눈 페이지가 요청마다 같은 순서가 되도록)
+ */
+@Component
+public class MemberSearchTemplates {
+
+    private static final int USERNAME = 1;
+    private static final int TEAM_NAME = 1 << 1;
+    private static final int AGE_GOE = 1 << 2;
+    private static final int AGE_LOE = 1 << 3;
+
+    private static final Param<String> USERNAME_PARAM = new Param<>(String.class, "username");
+    private static final Param<String> TEAM_NAME_PARAM = new Param<>(String.class, "teamName");
+    private static final Param<Integer> AGE_GOE_PARAM = new Param<>(Integer.class, "ageGoe");
+    private static final Param<Integer> AGE_LOE_PARAM = new Param<>(Integer.class, "ageLoe");
+    private static final String USERNAMES_PARAM = "usernames";
+    private static final String TEAM_NAMES_PARAM = "teamNames";
+    private static final String TEAM_IDS_PARAM = "teamIds";
+
+    @PersistenceContext
+    private EntityManager em;
+    private final JPAQueryFactory queryFactory;
+    private final boolean summaryEnabled;
+
+    private final Map<Shape, PrecompiledQuery<MemberTeamDto>> contentTemplates = new ConcurrentHashMap<>();
+    private final Map<Shape, PrecompiledQuery<Long>> countTemplates = new ConcurrentHashMap<>();
+    private final Map<Shape, PrecompiledQuery<Long>> summaryCountTemplates = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public MemberSearchTemplates(JPAQueryFactory queryFactory,
+                                 @Value("${member.count-summary.enabled:true}") boolean summaryEnabled) {
+        this.queryFactory = queryFactory;
+        this.summaryEnabled = summaryEnabled;
+    }
+
+    public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        MemberSearchCondition normalized = condition.normalize();
+        return template(contentTemplates, shape(normalized), this::compileContent)
+                .fetch(em, params(normalized));
+    }
+
+    public List<MemberTeamDto> search(MemberSearchCondition condition, Pageable pageable) {
+        return search(condition, pageable.getOffset(), pageable.getPageSize());
+    }
+
+    public List<MemberTeamDto> search(MemberSearchCondition condition, long offset, int limit) {
+        MemberSearchCondition normalized = condition.normalize();
+        return template(contentTemplates, shape(normalized), this::compileContent)
+                .fetch(em, params(normalized), offset, limit);
+    }
+
+    /**
+     * 회원명 조건이 없으면 (팀, 나이)별 요약 테이블(MemberTeamAgeCount)의 카운터를 더해서 답한다.
+     * member row 수가 아니라 카운터 row 수만큼만 읽는다. member.count-summary.enabled=false 면 항상 member 테이블에서 센다.
+     */
+    public long count(MemberSearchCondition condition) {
+        MemberSearchCondition normalized = condition.normalize();
+        Shape shape = shape(normalized);
+        if (answeredBySummary(shape)) {
+            Long total = template(summaryCountTemplates, shape, this::compileSummaryCount)
+                    .fetchOne(em, params(normalized));
+            return total != null ? total : 0L;
+        }
+        return template(countTemplates, shape, this::compileCount)
+                .fetchOne(em, params(normalized));
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    private <T> PrecompiledQuery<T> template(Map<Shape, PrecompiledQuery<T>> templates, Shape shape,
+                                             Function<Shape, PrecompiledQuery<T>> compiler) {
+        PrecompiledQuery<T> template = templates.get(shape);
+        if (template != null) {
+            hits.increment();
+            return template;
+        }
+        misses.increment();
+        return templates.computeIfAbsent(shape, compiler);
+    }
+
+    private PrecompiledQuery<MemberTeamDto> compileContent(Shape shape) {
+        JPAQuery<MemberTeamDto> query = queryFactory
+                .select(new QMemberTeamDto(
+                        member.id.as("memberId"),
+                        member.username,
+                        member.age,
+                        team.id.as("teamId"),
+                        team.name.as("teamName")
+                ))
+                .from(member);
+        joinTeam(query, shape);
+        return PrecompiledQuery.compile(query.where(predicates(shape)).orderBy(member.id.asc()), em);
+    }
+
+    //team 을 조회하지 않으므로 team 조건이 없으면 join 하지 않는다.
+    private PrecompiledQuery<Long> compileCount(Shape shape) {
+        JPAQuery<Long> query = queryFactory
+                .select(member.count())
+                .from(member);
+        if (filtersByTeam(shape)) {
+            joinTeam(query, shape);
+        }
+        return PrecompiledQuery.compile(query.where(predicates(shape)), em);
+    }
+
+    //select sum(count.memberCount) from MemberTeamAgeCount count (join Team team on team.id = count.teamId)
+    private PrecompiledQuery<Long> compileSummaryCount(Shape shape) {
+        JPAQuery<Long> query = queryFactory
+                .select(memberTeamAgeCount.memberCount.sum())
+                .from(memberTeamAgeCount);
+        if (filtersByTeam(shape)) {
+            query.join(team).on(team.id.eq(memberTeamAgeCount.teamId));
+        }
+        int fields = shape.fields;
+        return PrecompiledQuery.compile(query.where(
+                (fields & TEAM_NAME) != 0 ? team.name.eq(TEAM_NAME_PARAM) : null,
+                (fields & AGE_GOE) != 0 ? memberTeamAgeCount.age.goe(AGE_GOE_PARAM) : null,
+                (fields & AGE_LOE) != 0 ? memberTeamAgeCount.age.loe(AGE_LOE_PARAM) : null,
+                inChunks(team.name, TEAM_NAMES_PARAM, shape.teamNameChunks),
+                inChunks(memberTeamAgeCount.teamId, TEAM_IDS_PARAM, shape.teamIdChunks)
+        ), em);
+    }
+
+    private boolean answeredBySummary(Shape shape) {
+        return summaryEnabled && (shape.fields & USERNAME) == 0 && shape.usernameChunks == 0;
+    }
+
+    /**
+     * team 조건이 있으면 team 이 없는 회원은 어차피 걸러지므로 inner join 으로 바꾼다.
+     * left join 은 DB 가 조인 순서를 바꿀 수 없어 member 를 전체 스캔하지만,
+     * inner join 이면 team(name) 인덱스로 team 을 먼저 찾고 member(team_id, age) 인덱스로 조인한다.
+     */
+    private void joinTeam(JPAQuery<?> query, Shape shape) {
+        if (filtersByTeam(shape)) {
+            query.join(member.team, team);
+        } else {
+            query.leftJoin(member.team, team);
+        }
+    }
+
+    private static boolean filtersByTeam(Shape shape) {
+        return (shape.fields & TEAM_NAME) != 0 || shape.teamNameChunks > 0;
+    }
+
+    private BooleanExpression[] predicates(Shape shape) {
+        int fields = shape.fields;
+        return new BooleanExpression[]{
+                (fields & USERNAME) != 0 ? member.username.eq(USERNAME_PARAM) : null,
+                (fields & TEAM_NAME) != 0 ? team.name.eq(TEAM_NAME_PARAM) : null,
+                (fields & AGE_GOE) != 0 ? member.age.goe(AGE_GOE_PARAM) : null,
+                (fields & AGE_LOE) != 0 ? member.age.loe(AGE_LOE_PARAM) : null,
+                inChunks(member.username, USERNAMES_PARAM, shape.usernameChunks),
+                inChunks(team.name, TEAM_NAMES_PARAM, shape.teamNameChunks),
+                inChunks(member.team.id, TEAM_IDS_PARAM, shape.teamIdChunks)
+        };
+    }
+
+    // (x in ?1 or x in ?2 ...) 청크마다 리스트 파라미터 하나
+    private BooleanExpression inChunks(Expression<?> expr, String name, int chunks) {
+        if (chunks == 0) {
+            return null;
+        }
+        BooleanExpression[] ins = new BooleanExpression[chunks];
+        for (int i = 0; i < chunks; i++) {
+            ins[i] = Expressions.booleanOperation(Ops.IN, expr, listParam(name, i));
+        }
+        return chunks == 1 ? ins[0] : Expressions.anyOf(ins);
+    }
+
+    //Collection.class 로는 Class<Collection<?>> 를 얻을 수 없어서 캐스팅한다. (바인딩 값은 항상 List)
+    @SuppressWarnings("unchecked")
+    private static Param<Collection<?>> listParam(String name, int chunk) {
+        return new Param<>((Class<Collection<?>>) (Class<?>) Collection.class, name + chunk);
+    }
+
+    //normalize() 된 조건 기준
+    private Shape shape(MemberSearchCondition condition) {
+        int fields = 0;
+        if (condition.getUsername() != null) {
+            fields |= USERNAME;
+        }
+        if (condition.getTeamName() != null) {
+            fields |= TEAM_NAME;
+        }
+        if (condition.getAgeGoe() != null) {
+            fields |= AGE_GOE;
+        }
+        if (condition.getAgeLoe() != null) {
+            fields |= AGE_LOE;
+        }
+        return new Shape(fields,
+                InClause.paddedChunks(condition.getUsernames()).size(),
+                InClause.paddedChunks(condition.getTeamNames()).size(),
+                InClause.paddedChunks(condition.getTeamIds()).size());
+    }
+
+    private Map<ParamExpression<?>, Object> params(MemberSearchCondition condition) {
+        Map<ParamExpression<?>, Object> params = new HashMap<>();
+        if (condition.getUsername() != null) {
+            params.put(USERNAME_PARAM, condition.getUsername());
+        }
+        if (condition.getTeamName() != null) {
+            params.put(TEAM_NAME_PARAM, condition.getTeamName());
+        }
+        if (condition.getAgeGoe() != null) {
+            params.put(AGE_GOE_PARAM, condition.getAgeGoe());
+        }
+        if (condition.getAgeLoe() != null) {
+            params.put(AGE_LOE_PARAM, condition.getAgeLoe());
+        }
+        putChunks(params, USERNAMES_PARAM, condition.getUsernames());
+        putChunks(params, TEAM_NAMES_PARAM, condition.getTeamNames());
+        putChunks(params, TEAM_IDS_PARAM, condition.getTeamIds());
+        return params;
+    }
+
+    private void putChunks(Map<ParamExpression<?>, Object> params, String name, List<?> values) {
+        List<? extends List<?>> chunks = InClause.paddedChunks(values);
+        for (int i = 0; i < chunks.size(); i++) {
+            params.put(listParam(name, i), chunks.get(i));
+        }
+    }
+
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    private static class Shape {
+        private final int fields;
+        private final int usernameChunks;
+        private final int teamNameChunks;
+        private final int teamIdChunks;
+    }
+}
@@ -0,0 +1,138 @@
+package com.smalldogg.study.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.SubQueryExpression;
+import com.querydsl.core.types.dsl.NumberExpression;
+import com.querydsl.core.types.dsl.PathBuilder;
+import com.querydsl.sql.SQLExpressions;
+import com.querydsl.sql.SQLQueryFactory;
+import com.querydsl.sql.WindowFunction;
+import com.querydsl.sql.WindowOver;
+import com.smalldogg.study.querydsl.dto.MemberRankDto;
+import com.smalldogg.study.querydsl.dto.MemberRunningAgeDto;
+import com.smalldogg.study.querydsl.dto.QMemberRankDto;
+import com.smalldogg.study.querydsl.dto.QMemberRunningAgeDto;
+import com.smalldogg.study.querydsl.sql.SMember;
+import com.smalldogg.study.querydsl.sql.STeam;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * querydsl-sql 윈도우 함수로 작성한 회원 분석 쿼리
+ * JPQL 로는 팀별 최고령, 팀 평균 이상 같은 조건을 상관 서브쿼리(row 마다 member 를 다시 읽음)로 써야 하지만
+ * 윈도우 함수는 member 를 한 번 읽으면서 팀(partition)별로 계산한다.
+ * 영속성 컨텍스트를 거치지 않으므로 쓰기 트랜잭션 안에서는 조회 전에 flush 한다.
+ */
+@Repository
+@RequiredArgsConstructor
+public class MemberSqlRepository {
+
+    private static final SMember m = SMember.member;
+    private static final STeam t = STeam.team;
+    private static final PathBuilder<Object> ranked = new PathBuilder<>(Object.class, "ranked");
+
+    @PersistenceContext
+    private EntityManager em;
+    private final SQLQueryFactory sqlQueryFactory;
+
+    //팀 안에서 나이 순위와 팀 평균 나이
+    @Transactional(readOnly = true)
+    public List<MemberRankDto> rankInTeam() {
+        return fromRanked(null);
+    }
+
+    //팀마다 나이가 많은 순으로 n 명 (n = 1 이면 팀별 최고령)
+    @Transactional(readOnly = true)
+    public List<MemberRankDto> topNPerTeam(int n) {
+        return fromRanked(ageRank -> ageRank.loe((long) n));
+    }
+
+    //팀 평균 나이 이상인 회원
+    @Transactional(readOnly = true)
+    public List<MemberRankDto> aboveTeamAverage() {
+        return fromRanked(ageRank -> ranked.getNumber("age", Integer.class)
+                .goe(ranked.getNumber("team_avg_age", Double.class)));
+    }
+
+    //팀 안에서 나이 순으로 누적 인원, 누적 나이 합계, 누적 평균
+    @Transactional(readOnly = true)
+    public List<MemberRunningAgeDto> runningAgeByTeam() {
+        flushIfReadWrite();
+        return sqlQueryFactory
+                .select(new QMemberRunningAgeDto(
+                        m.memberId,
+                        m.username,
+                        m.age,
+                        m.teamId,
+                        running(SQLExpressions.count(m.memberId)),
+                        running(SQLExpressions.sum(m.age.castToNum(Long.class))),
+                        running(SQLExpressions.avg(m.age.castToNum(Double.class)))
+                ))
+                .from(m)
+                .orderBy(m.teamId.asc().nullsLast(), m.age.asc(), m.memberId.asc())
+                .fetch();
+    }
+
+    /**
+     * select ... from (select ..., row_number() over (...) age_rank, avg(age) over (...) team_avg_age
+     *                  from member left join team) ranked
+     * where filter
+     * 윈도우 함수 결과는 where 절에서 쓸 수 없으므로 파생 테이블로 한 번 감싼다.
+     */
+    private List<MemberRankDto> fromRanked(Function<NumberExpression<Long>, Predicate> filter) {
+        flushIfReadWrite();
+        SubQueryExpression<Tuple> rankedMembers = SQLExpressions
+                .select(
+                        m.memberId.as("member_id"),
+                        m.username.as("username"),
+                        m.age.as("age"),
+                        m.teamId.as("team_id"),
+                        t.name.as("team_name"),
+                        SQLExpressions.rowNumber().over()
+                                .partitionBy(m.teamId)
+                                .orderBy(m.age.desc(), m.memberId.asc())
+                                .as("age_rank"),
+                        SQLExpressions.avg(m.age.castToNum(Double.class)).over()
+                                .partitionBy(m.teamId)
+                                .as("team_avg_age"))
+                .from(m)
+                .leftJoin(t).on(t.teamId.eq(m.teamId));
+
+        NumberExpression<Long> ageRank = ranked.getNumber("age_rank", Long.class);
+        return sqlQueryFactory
+                .select(new QMemberRankDto(
+                        ranked.getNumber("member_id", Long.class),
+                        ranked.getString("username"),
+                        ranked.getNumber("age", Integer.class),
+                        ranked.getNumber("team_id", Long.class),
+                        ranked.getString("team_name"),
+                        ageRank,
+                        ranked.getNumber("team_avg_age", Double.class)
+                ))
+                .from(rankedMembers, ranked)
+                .where(filter != null ? filter.apply(ageRank) : null)
+                .orderBy(ranked.getNumber("team_id", Long.class).asc().nullsLast(), ageRank.asc())
+                .fetch();
+    }
+
+    private static <T> WindowFunction<T> running(WindowOver<T> aggregate) {
+        return aggregate.over()
+                .partitionBy(m.teamId)
+                .orderBy(m.age.asc(), m.memberId.asc());
+    }
+
+    private void flushIfReadWrite() {
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            em.flush();
+        }
+    }
+}
@@ -10,6 +10,7 @@ import com.smalldogg.study.querydsl.repository.support.Querydsl4RepositorySuppor
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -33,6 +34,7 @@ public class MemberTestRepository extends Querydsl4RepositorySupport {
                 .fetch();
     }
 
+    @Transactional(readOnly = true)
     public Page<Member> searchPageByApplyPage(MemberSearchCondition condition, Pageable pageable) {
         JPAQuery<Member> query = selectFrom(member)
                 .leftJoin(member.team, team)
@@ -41,9 +43,9 @@ public class MemberTestRepository extends Querydsl4RepositorySupport {
                 ageGoe(condition.getAgeGoe()),
                 ageLoe(condition.getAgeLoe())
         );
-        List<Member> content = getQuerydsl().applyPagination(pageable, query).fetch();
+        List<Member> content = getQuerydsl().applyPagination(pageable, readOnly(query)).fetch();
 
-        return PageableExecutionUtils.getPage(content, pageable, query::fetchCount);
+        return PageableExecutionUtils.getPage(content, pageable, countQuery(query));
     }
 
     public Page<Member> applyPagination(MemberSearchCondition condition, Pageable pageable) {
@@ -0,0 +1,166 @@
+package com.smalldogg.study.querydsl.repository.support;
+
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.types.ParamExpression;
+import com.querydsl.core.types.ParamNotSetException;
+import com.querydsl.core.types.dsl.Param;
+import com.querydsl.jpa.JPQLSerializer;
+import com.querydsl.jpa.impl.JPAProvider;
+import com.querydsl.jpa.impl.JPAQuery;
+import org.hibernate.engine.query.spi.HQLQueryPlan;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.hql.spi.NamedParameterInformation;
+import org.hibernate.hql.spi.QueryTranslator;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Querydsl 쿼리를 하이버네이트가 만든 SQL 로 실행하고 ResultSet 을 ColumnReader 가 직접 읽는다.
+ * 엔티티/DTO/Object[] 를 row 마다 만들지 않으므로 대량 조회에서 할당량이 row 수에 비례하지 않는다.
+ * - 프로젝션은 기본 타입 컬럼만 쓴다. 컬럼 인덱스(1부터)는 프로젝션 순서와 같다.
+ * - 파라미터는 JDBC 기본 타입(String, 숫자 등)과 그 컬렉션(IN)만 지원한다.
+ * - offset/limit 은 지원하지 않는다.
+ * - JDBC 로 직접 읽으므로 자동 flush 가 없다. 쓰기 트랜잭션 안에서는 실행 전에 flush 한다.
+ */
+public final class ColumnarQuery {
+
+    private static final Pattern ORDINAL_PARAM = Pattern.compile("\\?(\\d+)");
+
+    private ColumnarQuery() {
+    }
+
+    /**
+     * ResultSet 을 row 단위로 읽어 컬럼별 배열에 채우는 쪽
+     */
+    public interface ColumnReader<R> {
+
+        /**
+         * @param row 0부터 시작하는 row 번호
+         */
+        void read(ResultSet rs, int row) throws SQLException;
+
+        R result(int rows);
+    }
+
+    public static <R> R fetch(JPAQuery<?> query, EntityManager entityManager, ColumnReader<R> reader) {
+        QueryMetadata metadata = query.getMetadata();
+        if (metadata.getModifiers().isRestricting()) {
+            throw new IllegalArgumentException("Columnar query does not support offset/limit");
+        }
+
+        JPQLSerializer serializer = new JPQLSerializer(JPAProvider.getTemplates(entityManager), entityManager);
+        serializer.serialize(metadata, false, null);
+        Map<String, Object> params = new LinkedHashMap<>();
+        String hql = toNamedParameters(serializer.toString(), resolve(serializer.getConstants(), metadata), params);
+
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        QueryTranslator translator = translate(session, hql);
+        String sql = translator.getSQLString();
+
+        if (inReadWriteTransaction()) {
+            entityManager.flush();
+        }
+        return session.doReturningWork(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                for (Map.Entry<String, Object> param : params.entrySet()) {
+                    NamedParameterInformation info = translator.getParameterTranslations()
+                            .getNamedParameterInformation(param.getKey());
+                    for (int location : info.getSourceLocations()) {
+                        ps.setObject(location + 1, param.getValue());
+                    }
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    int rows = 0;
+                    while (rs.next()) {
+                        reader.read(rs, rows++);
+                    }
+                    return reader.result(rows);
+                }
+            }
+        });
+    }
+
+    /**
+     * HQL 을 SQL 로 바꾼 번역기를 하이버네이트 쿼리 플랜 캐시에서 꺼낸다. (같은 HQL 은 한 번만 파싱)
+     * 하이버네이트 5.x 에서 HQL 이 만드는 SQL 과 파라미터 위치를 얻는 공개 API 가 없어서 SPI 를 쓴다.
+     * getQueryPlanCache() 는 6.0 에서 SQM 으로 바뀌면서 없어질 예정이라 deprecated 이다. 6.x 로 올릴 때 이 메서드를 다시 작성해야 한다.
+     * ScrollableResults 는 row 마다 Object[] 를 만들기 때문에 이 클래스를 쓰는 의미가 없어서 쓰지 않는다.
+     */
+    @SuppressWarnings("deprecation")
+    private static QueryTranslator translate(SessionImplementor session, String hql) {
+        HQLQueryPlan plan = session.getFactory().getQueryPlanCache()
+                .getHQLQueryPlan(hql, false, Collections.emptyMap());
+        QueryTranslator[] translators = plan.getTranslators();
+        if (translators.length != 1) {
+            //다형성 쿼리(상속 매핑 루트)는 SQL 이 여러 개라서 하나의 ResultSet 으로 읽을 수 없다.
+            throw new IllegalArgumentException("Columnar query requires a single SQL statement: " + hql);
+        }
+        return translators[0];
+    }
+
+    /**
+     * ?1 같은 위치 파라미터를 :p1 로 바꾸고, 컬렉션 값은 (:p1_0, :p1_1, ...) 로 펼친다.
+     * 하이버네이트가 컬렉션 파라미터를 펼치는 일은 Query 실행 시점에 하므로 여기서 직접 한다.
+     */
+    static String toNamedParameters(String jpql, List<Object> constants, Map<String, Object> params) {
+        Matcher matcher = ORDINAL_PARAM.matcher(jpql);
+        StringBuilder hql = new StringBuilder();
+        while (matcher.find()) {
+            int ordinal = Integer.parseInt(matcher.group(1));
+            Object value = constants.get(ordinal - 1);
+            String name = "p" + ordinal;
+            String replacement;
+            if (value instanceof Collection) {
+                boolean wrapped = matcher.start() > 0 && jpql.charAt(matcher.start() - 1) == '(';
+                StringBuilder expanded = new StringBuilder(wrapped ? "" : "(");
+                int i = 0;
+                for (Object element : (Collection<?>) value) {
+                    String elementName = name + "_" + i;
+                    expanded.append(i++ > 0 ? ", :" : ":").append(elementName);
+                    params.put(elementName, element);
+                }
+                replacement = expanded.append(wrapped ? "" : ")").toString();
+            } else {
+                replacement = ":" + name;
+                params.put(name, value);
+            }
+            matcher.appendReplacement(hql, Matcher.quoteReplacement(replacement));
+        }
+        matcher.appendTail(hql);
+        return hql.toString();
+    }
+
+    //Param 으로 선언한 값은 쿼리에 설정한 값으로 바꾼다.
+    private static List<Object> resolve(List<Object> constants, QueryMetadata metadata) {
+        List<Object> values = new ArrayList<>(constants.size());
+        for (Object constant : constants) {
+            if (constant instanceof ParamExpression) {
+                ParamExpression<?> param = (ParamExpression<?>) constant;
+                if (!metadata.getParams().containsKey(param)) {
+                    throw new ParamNotSetException((Param<?>) param);
+                }
+                values.add(metadata.getParams().get(param));
+            } else {
+                values.add(constant);
+            }
+        }
+        return values;
+    }
+
+    private static boolean inReadWriteTransaction() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+}
@@ -0,0 +1,235 @@
+package com.smalldogg.study.querydsl.repository.support;
+
+import com.querydsl.core.DefaultQueryMetadata;
+import com.querydsl.core.JoinExpression;
+import com.querydsl.core.JoinFlag;
+import com.querydsl.core.JoinType;
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.*;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.NumberExpression;
+import com.querydsl.core.types.dsl.PathBuilder;
+import com.querydsl.jpa.JPAQueryMixin;
+import com.querydsl.jpa.impl.JPAQuery;
+import org.springframework.data.jpa.repository.support.JpaEntityInformationSupport;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+
+/**
+ * content 쿼리에서 count 쿼리를 만든다.
+ * - 정렬, offset/limit, 프로젝션은 버리고 select count(id) 로 바꾼다.
+ * - where/having/groupBy 와 다른 조인이 참조하지 않는 to-one left join 은 row 수에 영향이 없으므로 제거한다.
+ * - fetch join 은 count 쿼리에서 의미가 없으므로 일반 조인으로 바꾼다.
+ * - group by 가 있으면 그룹 수를 센다.
+ */
+public final class CountQueryDeriver {
+
+    private CountQueryDeriver() {
+    }
+
+    public static LongSupplier derive(JPAQuery<?> contentQuery, EntityManager entityManager) {
+        QueryMetadata source = contentQuery.getMetadata();
+        DefaultQueryMetadata metadata = new DefaultQueryMetadata();
+
+        for (JoinExpression join : requiredJoins(source)) {
+            metadata.addJoin(join.getType(), join.getTarget());
+            if (join.getCondition() != null) {
+                metadata.addJoinCondition(join.getCondition());
+            }
+            for (JoinFlag flag : join.getFlags()) {
+                if (!flag.equals(JPAQueryMixin.FETCH) && !flag.equals(JPAQueryMixin.FETCH_ALL_PROPERTIES)) {
+                    metadata.addJoinFlag(flag);
+                }
+            }
+        }
+        metadata.addWhere(source.getWhere());
+        for (Map.Entry<ParamExpression<?>, Object> param : source.getParams().entrySet()) {
+            setParam(metadata, param.getKey(), param.getValue());
+        }
+
+        if (!source.getGroupBy().isEmpty()) {
+            //group by 가 있으면 그룹 수가 전체 건수
+            List<Expression<?>> groupBy = source.getGroupBy();
+            if (groupBy.size() == 1 && source.getHaving() == null) {
+                return groupKeyCount(metadata, groupBy.get(0), rootId(source, entityManager), entityManager);
+            }
+
+            //JPQL 은 from 절 서브쿼리가 없으므로 그룹을 스트림으로 읽으면서 센다. (결과를 메모리에 모으지 않는다)
+            for (Expression<?> expr : groupBy) {
+                metadata.addGroupBy(expr);
+            }
+            metadata.addHaving(source.getHaving());
+            JPAQuery<?> groupQuery = new JPAQuery<>(entityManager, metadata).select(groupBy.get(0));
+            return () -> {
+                try (Stream<?> groups = groupQuery.stream()) {
+                    return groups.count();
+                }
+            };
+        }
+
+        Expression<Long> count = countExpression(source, entityManager);
+        JPAQuery<Long> countQuery = new JPAQuery<>(entityManager, metadata).select(count);
+        return () -> {
+            Long total = countQuery.fetchOne();
+            return total != null ? total : 0L;
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void setParam(QueryMetadata metadata, ParamExpression<T> param, Object value) {
+        metadata.setParam(param, (T) value);
+    }
+
+    /**
+     * 그룹 키 하나로 group by 한 쿼리의 그룹 수를 한 row 로 구한다.
+     * count(distinct key) 는 null 을 세지 않으므로 key 가 null 인 row 가 있으면 (null 그룹) 1 을 더한다.
+     */
+    private static LongSupplier groupKeyCount(DefaultQueryMetadata metadata, Expression<?> key,
+                                              PathBuilder<Object> rootId, EntityManager entityManager) {
+        NumberExpression<Long> distinctKeys = Expressions.numberOperation(Long.class, Ops.AggOps.COUNT_DISTINCT_AGG, key);
+        NumberExpression<Long> nonNullKeys = Expressions.numberOperation(Long.class, Ops.AggOps.COUNT_AGG, key);
+        NumberExpression<Long> rows = rootId.count();
+        JPAQuery<Tuple> query = new JPAQuery<>(entityManager, metadata).select(distinctKeys, nonNullKeys, rows);
+        return () -> {
+            Tuple result = query.fetchOne();
+            if (result == null) {
+                return 0L;
+            }
+            long groups = result.get(distinctKeys);
+            return result.get(rows) > result.get(nonNullKeys) ? groups + 1 : groups;
+        };
+    }
+
+    private static Expression<Long> countExpression(QueryMetadata source, EntityManager entityManager) {
+        PathBuilder<Object> id = rootId(source, entityManager);
+        return source.isDistinct() ? id.countDistinct() : id.count();
+    }
+
+    private static PathBuilder<Object> rootId(QueryMetadata source, EntityManager entityManager) {
+        Expression<?> from = source.getJoins().get(0).getTarget();
+        if (!(from instanceof EntityPath)) {
+            throw new IllegalStateException("Count query can only be derived from an entity root: " + from);
+        }
+        EntityPath<?> root = (EntityPath<?>) from;
+        String idName = JpaEntityInformationSupport.getEntityInformation(root.getType(), entityManager)
+                .getIdAttribute().getName();
+        return new PathBuilder<>(root.getType(), root.getMetadata()).get(idName);
+    }
+
+    //뒤쪽 조인부터 보면서, 참조되는 alias 만 남긴다.
+    private static List<JoinExpression> requiredJoins(QueryMetadata source) {
+        Set<Expression<?>> referenced = new HashSet<>();
+        RootCollector.collect(source.getWhere(), referenced);
+        RootCollector.collect(source.getHaving(), referenced);
+        for (Expression<?> groupBy : source.getGroupBy()) {
+            RootCollector.collect(groupBy, referenced);
+        }
+
+        List<JoinExpression> joins = source.getJoins();
+        List<JoinExpression> required = new ArrayList<>();
+        for (int i = joins.size() - 1; i >= 0; i--) {
+            JoinExpression join = joins.get(i);
+            if (i > 0 && isPrunable(join, referenced)) {
+                continue;
+            }
+            required.add(0, join);
+            RootCollector.collect(join.getTarget(), referenced);
+            RootCollector.collect(join.getCondition(), referenced);
+        }
+        return required;
+    }
+
+    // left join member.team as team 처럼 to-one 연관관계 left join 만 제거 대상
+    private static boolean isPrunable(JoinExpression join, Set<Expression<?>> referenced) {
+        if (join.getType() != JoinType.LEFTJOIN || !(join.getTarget() instanceof Operation)) {
+            return false;
+        }
+        Operation<?> target = (Operation<?>) join.getTarget();
+        if (target.getOperator() != Ops.ALIAS) {
+            return false;
+        }
+        Expression<?> association = target.getArg(0);
+        Expression<?> alias = target.getArg(1);
+        return association instanceof Path
+                && !(association instanceof CollectionExpression)
+                && !(association instanceof MapExpression)
+                && !referenced.contains(alias);
+    }
+
+    /**
+     * 식에 등장하는 모든 path 의 root(alias) 를 모은다.
+     */
+    private static final class RootCollector implements Visitor<Void, Set<Expression<?>>> {
+
+        private static final RootCollector INSTANCE = new RootCollector();
+
+        static void collect(Expression<?> expr, Set<Expression<?>> roots) {
+            if (expr != null) {
+                expr.accept(INSTANCE, roots);
+            }
+        }
+
+        @Override
+        public Void visit(Constant<?> expr, Set<Expression<?>> roots) {
+            return null;
+        }
+
+        @Override
+        public Void visit(FactoryExpression<?> expr, Set<Expression<?>> roots) {
+            for (Expression<?> arg : expr.getArgs()) {
+                collect(arg, roots);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visit(Operation<?> expr, Set<Expression<?>> roots) {
+            for (Expression<?> arg : expr.getArgs()) {
+                collect(arg, roots);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visit(ParamExpression<?> expr, Set<Expression<?>> roots) {
+            return null;
+        }
+
+        @Override
+        public Void visit(Path<?> expr, Set<Expression<?>> roots) {
+            roots.add(expr.getRoot());
+            return null;
+        }
+
+        @Override
+        public Void visit(SubQueryExpression<?> expr, Set<Expression<?>> roots) {
+            QueryMetadata metadata = expr.getMetadata();
+            collect(metadata.getProjection(), roots);
+            collect(metadata.getWhere(), roots);
+            collect(metadata.getHaving(), roots);
+            for (JoinExpression join : metadata.getJoins()) {
+                collect(join.getTarget(), roots);
+                collect(join.getCondition(), roots);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visit(TemplateExpression<?> expr, Set<Expression<?>> roots) {
+            for (Object arg : expr.getArgs()) {
+                if (arg instanceof Expression) {
+                    collect((Expression<?>) arg, roots);
+                }
+            }
+            return null;
+        }
+    }
+}
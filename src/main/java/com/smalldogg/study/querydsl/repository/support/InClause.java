@@ -0,0 +1,71 @@
+package com.smalldogg.study.querydsl.repository.support;
+
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.SimpleExpression;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * 다중 값 IN 조건
+ * - 값이 많으면 MAX_CHUNK_SIZE 단위로 잘라 (x in (...) or x in (...)) 로 만든다.
+ * - 각 청크는 마지막 값을 반복해서 2의 거듭제곱 크기로 맞춘다.
+ *   리스트 길이마다 다른 쿼리 플랜/prepared statement 가 캐시에 쌓이지 않게 하기 위함.
+ */
+public final class InClause {
+
+    public static final int MAX_CHUNK_SIZE = 512;
+
+    private InClause() {
+    }
+
+    /**
+     * @return 값이 없으면 null (where 절에서 무시된다)
+     */
+    public static <T> BooleanExpression in(SimpleExpression<T> expr, Collection<? extends T> values) {
+        List<List<T>> chunks = paddedChunks(values);
+        if (chunks.isEmpty()) {
+            return null;
+        }
+        BooleanExpression[] ins = new BooleanExpression[chunks.size()];
+        for (int i = 0; i < chunks.size(); i++) {
+            ins[i] = expr.in(chunks.get(i));
+        }
+        return ins.length == 1 ? ins[0] : Expressions.anyOf(ins);
+    }
+
+    /**
+     * null, 빈 문자열과 중복을 제거한 뒤 청크로 나누고 청크마다 2의 거듭제곱 크기로 채운다.
+     */
+    public static <T> List<List<T>> paddedChunks(Collection<? extends T> values) {
+        List<List<T>> chunks = new ArrayList<>();
+        if (values == null || values.isEmpty()) {
+            return chunks;
+        }
+
+        List<T> distinct = new ArrayList<>(new LinkedHashSet<>(values));
+        distinct.removeIf(value -> !isPresent(value));
+        for (int from = 0; from < distinct.size(); from += MAX_CHUNK_SIZE) {
+            List<T> chunk = new ArrayList<>(distinct.subList(from, Math.min(from + MAX_CHUNK_SIZE, distinct.size())));
+            T last = chunk.get(chunk.size() - 1);
+            int padded = Integer.highestOneBit(chunk.size() - 1) << 1;
+            while (chunk.size() < padded) {
+                chunk.add(last);
+            }
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    /**
+     * IN 조건에 넣을 값인지 판단한다. null 과 빈 문자열은 조건에서 무시한다.
+     * MemberSearchCondition.normalize() 도 같은 기준을 쓴다.
+     */
+    public static boolean isPresent(Object value) {
+        return value instanceof String ? StringUtils.hasText((String) value) : value != null;
+    }
+}
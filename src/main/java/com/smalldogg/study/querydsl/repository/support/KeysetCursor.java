@@ -0,0 +1,76 @@
+package com.smalldogg.study.querydsl.repository.support;
+
+import org.springframework.data.domain.Sort;
+
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * keyset 페이징 커서 토큰
+ * 마지막 row 의 정렬 키 값을 "property=value&..." 형태로 묶어 base64url 로 인코딩한다.
+ * 값이 null 인 키는 "=value" 없이 "property" 만 쓴다.
+ */
+public final class KeysetCursor {
+
+    private KeysetCursor() {
+    }
+
+    public static String encode(Sort sort, List<Object> values) {
+        StringBuilder sb = new StringBuilder();
+        int i = 0;
+        for (Sort.Order order : sort) {
+            Object value = values.get(i++);
+            if (sb.length() > 0) {
+                sb.append('&');
+            }
+            sb.append(urlEncode(order.getProperty()));
+            if (value != null) {
+                sb.append('=').append(urlEncode(value.toString()));
+            }
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 커서를 정렬 순서대로 디코딩한다. (null 인 키는 null) 정렬 조건이 커서를 만들 때와 다르면 예외.
+     */
+    public static List<String> decode(Sort sort, String cursor) {
+        String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+
+        String[] pairs = decoded.split("&");
+        List<String> values = new ArrayList<>();
+        int i = 0;
+        for (Sort.Order order : sort) {
+            if (i >= pairs.length) {
+                throw new IllegalArgumentException("Cursor does not match sort: " + sort);
+            }
+            String[] pair = pairs[i++].split("=", 2);
+            if (!order.getProperty().equals(urlDecode(pair[0]))) {
+                throw new IllegalArgumentException("Cursor does not match sort: " + sort);
+            }
+            values.add(pair.length == 2 ? urlDecode(pair[1]) : null);
+        }
+        if (i != pairs.length) {
+            throw new IllegalArgumentException("Cursor does not match sort: " + sort);
+        }
+        return values;
+    }
+
+    private static String urlEncode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private static String urlDecode(String value) {
+        return URLDecoder.decode(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,25 @@
+package com.smalldogg.study.querydsl.repository.support;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * keyset(seek) 페이징 결과
+ * 다음 페이지는 offset 대신 nextCursor 로 요청한다.
+ */
+@Getter
+public class KeysetPage<T> {
+
+    private final List<T> content;
+    private final int size;
+    private final boolean hasNext;
+    private final String nextCursor;
+
+    public KeysetPage(List<T> content, int size, boolean hasNext, String nextCursor) {
+        this.content = content;
+        this.size = size;
+        this.hasNext = hasNext;
+        this.nextCursor = nextCursor;
+    }
+}
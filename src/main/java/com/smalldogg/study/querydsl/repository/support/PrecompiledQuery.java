@@ -0,0 +1,96 @@
+package com.smalldogg.study.querydsl.repository.support;
+
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.ParamExpression;
+import com.querydsl.jpa.JPQLSerializer;
+import com.querydsl.jpa.impl.JPAProvider;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAUtil;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 한 번만 JPQL 로 직렬화해 둔 Querydsl 쿼리
+ * 값은 Param 으로 선언해 두고, 실행할 때는 파라미터만 바인딩한다.
+ * 식 트리 생성과 JPQL 직렬화 비용이 없고, 하이버네이트 쿼리 플랜 캐시도 같은 JPQL 문자열로 재사용된다.
+ */
+public class PrecompiledQuery<T> {
+
+    private final String jpql;
+    private final List<Object> constants;
+    private final FactoryExpression<T> projection;
+
+    private PrecompiledQuery(String jpql, List<Object> constants, FactoryExpression<T> projection) {
+        this.jpql = jpql;
+        this.constants = constants;
+        this.projection = projection;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> PrecompiledQuery<T> compile(JPAQuery<T> template, EntityManager entityManager) {
+        JPQLSerializer serializer = new JPQLSerializer(JPAProvider.getTemplates(entityManager), entityManager);
+        serializer.serialize(template.getMetadata(), false, null);
+
+        Expression<?> projection = template.getMetadata().getProjection();
+        return new PrecompiledQuery<>(
+                serializer.toString(),
+                new ArrayList<>(serializer.getConstants()),
+                projection instanceof FactoryExpression ? (FactoryExpression<T>) projection : null);
+    }
+
+    public String getJpql() {
+        return jpql;
+    }
+
+    public List<T> fetch(EntityManager entityManager, Map<ParamExpression<?>, Object> params) {
+        return fetch(entityManager, params, 0, -1);
+    }
+
+    /**
+     * @param offset JPA 의 firstResult 는 int 이므로 Integer.MAX_VALUE 를 넘으면 IllegalArgumentException
+     * @param limit 0 보다 작으면 제한 없음
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> fetch(EntityManager entityManager, Map<ParamExpression<?>, Object> params, long offset, int limit) {
+        if (offset > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Offset too large: " + offset);
+        }
+        Query query = createQuery(entityManager, params);
+        if (offset > 0) {
+            query.setFirstResult((int) offset);
+        }
+        if (limit >= 0) {
+            query.setMaxResults(limit);
+        }
+
+        List<?> rows = query.getResultList();
+        if (projection == null) {
+            return (List<T>) rows;
+        }
+        List<T> result = new ArrayList<>(rows.size());
+        for (Object row : rows) {
+            result.add(projection.newInstance(row instanceof Object[] ? (Object[]) row : new Object[]{row}));
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T fetchOne(EntityManager entityManager, Map<ParamExpression<?>, Object> params) {
+        Object row = createQuery(entityManager, params).getSingleResult();
+        if (projection == null) {
+            return (T) row;
+        }
+        return projection.newInstance(row instanceof Object[] ? (Object[]) row : new Object[]{row});
+    }
+
+    private Query createQuery(EntityManager entityManager, Map<ParamExpression<?>, Object> params) {
+        Query query = entityManager.createQuery(jpql);
+        JPAUtil.setConstants(query, constants, params);
+        return query;
+    }
+}
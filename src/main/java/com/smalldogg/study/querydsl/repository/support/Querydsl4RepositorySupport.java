@@ -1,25 +1,56 @@
 package com.smalldogg.study.querydsl.repository.support;
 
 import com.mysema.commons.lang.Assert;
+import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.types.EntityPath;
 import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.ComparablePath;
 import com.querydsl.core.types.dsl.PathBuilder;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.HibernateException;
+import org.hibernate.engine.spi.SessionImplementor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.convert.ConversionException;
+import org.springframework.core.convert.support.DefaultConversionService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.support.JpaEntityInformation;
 import org.springframework.data.jpa.repository.support.JpaEntityInformationSupport;
 import org.springframework.data.jpa.repository.support.Querydsl;
 import org.springframework.data.querydsl.SimpleEntityPathResolver;
 import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.ClassUtils;
 
 import javax.annotation.PostConstruct;
 import javax.persistence.EntityManager;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.SingularAttribute;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
 
 @Repository
 public abstract class Querydsl4RepositorySupport {
@@ -27,6 +58,11 @@ public abstract class Querydsl4RepositorySupport {
     private Querydsl querydsl;
     private EntityManager entityManager;
     private JPAQueryFactory queryFactory;
+    private PathBuilder<?> builder;
+    private String idAttributeName;
+    private Executor countQueryExecutor;
+    private TransactionTemplate readOnlyTransaction;
+    private int countQueryTimeout;
 
     public Querydsl4RepositorySupport(Class<?> domainClass) {
         Assert.notNull(domainClass, "Domain class must not be null!");
@@ -41,9 +77,32 @@ public abstract class Querydsl4RepositorySupport {
         SimpleEntityPathResolver resolver = SimpleEntityPathResolver.INSTANCE;
         EntityPath path = resolver.createPath(entityInformation.getJavaType());
         this.entityManager = entityManager;
-        this.querydsl = new Querydsl(entityManager, new
-                PathBuilder<>(path.getType(), path.getMetadata()));
+        this.builder = new PathBuilder<>(path.getType(), path.getMetadata());
+        this.querydsl = new Querydsl(entityManager, builder);
         this.queryFactory = new JPAQueryFactory(entityManager);
+        this.idAttributeName = entityInformation.getIdAttribute().getName();
+    }
+
+    @Autowired
+    public void setCountQueryExecutor(@Qualifier("countQueryExecutor") Executor countQueryExecutor) {
+        this.countQueryExecutor = countQueryExecutor;
+    }
+
+    /**
+     * 병렬 count 트랜잭션의 타임아웃(초), 0 이면 제한 없음
+     * 트랜잭션 타임아웃은 공유 EntityManager 로 만든 쿼리마다 JDBC query timeout 으로 걸린다.
+     */
+    @Autowired
+    public void setCountQueryTimeout(@Value("${member.count-executor.query-timeout:10}") int countQueryTimeout) {
+        this.countQueryTimeout = countQueryTimeout;
+    }
+
+    @Autowired
+    public void setTransactionManager(PlatformTransactionManager transactionManager) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        template.setReadOnly(true);
+        this.readOnlyTransaction = template;
     }
 
     @PostConstruct
@@ -51,6 +110,10 @@ public abstract class Querydsl4RepositorySupport {
         Assert.notNull(entityManager, "EntityManager must not be null!");
         Assert.notNull(querydsl, "Querydsl must not be null!");
         Assert.notNull(queryFactory, "QueryFactory must not be null!");
+        Assert.notNull(countQueryExecutor, "CountQueryExecutor must not be null!");
+        Assert.notNull(readOnlyTransaction, "TransactionManager must not be null!");
+        //setter 주입 순서와 상관없도록 여기서 건다.
+        readOnlyTransaction.setTimeout(countQueryTimeout > 0 ? countQueryTimeout : TransactionDefinition.TIMEOUT_DEFAULT);
     }
 
     protected JPAQueryFactory getQueryFactory() {
@@ -73,15 +136,22 @@ public abstract class Querydsl4RepositorySupport {
         return getQueryFactory().selectFrom(from);
     }
 
+    /**
+     * count 쿼리는 content 쿼리에서 자동으로 만든다. (CountQueryDeriver)
+     */
     protected <T> Page<T> applyPagination(Pageable pageable,
                                           Function<JPAQueryFactory, JPAQuery> contentQuery) {
         JPAQuery jpaQuery = contentQuery.apply(getQueryFactory());
         List<T> content = getQuerydsl().applyPagination(pageable,
                 jpaQuery).fetch();
         return PageableExecutionUtils.getPage(content, pageable,
-                jpaQuery::fetchCount);
+                countQuery(jpaQuery));
     }
 
+    /**
+     * 직접 준 count 쿼리는 바꾸지 않고 그대로 fetchCount 로 실행한다.
+     */
+    @SuppressWarnings("deprecation")
     protected <T> Page<T> applyPagination(Pageable pageable,
                                           Function<JPAQueryFactory, JPAQuery> contentQuery, Function<JPAQueryFactory,
             JPAQuery> countQuery) {
@@ -92,4 +162,255 @@ public abstract class Querydsl4RepositorySupport {
         return PageableExecutionUtils.getPage(content, pageable,
                 countResult::fetchCount);
     }
-}
\ No newline at end of file
+
+    /**
+     * deferred join 페이징
+     * 1. idQuery(select id ...)에 정렬과 offset/limit 을 적용해 좁은 인덱스로 id 만 조회한다.
+     *    정렬 키가 같은 row 가 페이지 사이에서 겹치거나 빠지지 않도록 id 를 마지막 정렬 조건으로 붙인다. (정렬이 없으면 id 순)
+     * 2. 그 id 들로 contentQuery 를 실행해 넓은 row 는 한 페이지 분량만 읽는다.
+     * content 는 idOf 로 id 를 꺼내 1단계 순서대로 다시 정렬한다.
+     * count 쿼리는 idQuery 에서 자동으로 만든다.
+     */
+    protected <T, ID> Page<T> applyDeferredPagination(Pageable pageable, JPAQuery<ID> idQuery,
+                                                      Function<List<ID>, List<T>> contentQuery,
+                                                      Function<T, ID> idOf) {
+        return applyDeferredPagination(pageable, idQuery, contentQuery, idOf, countQuery(idQuery));
+    }
+
+    protected <T, ID> Page<T> applyDeferredPagination(Pageable pageable, JPAQuery<ID> idQuery,
+                                                      Function<List<ID>, List<T>> contentQuery,
+                                                      Function<T, ID> idOf, LongSupplier count) {
+        JPAQuery<ID> pageQuery = idQuery.clone();
+        getQuerydsl().applySorting(withIdTiebreaker(pageable.getSort()), pageQuery);
+        if (pageable.isPaged()) {
+            pageQuery.offset(pageable.getOffset()).limit(pageable.getPageSize());
+        }
+        List<ID> ids = pageQuery.fetch();
+        if (ids.isEmpty()) {
+            return PageableExecutionUtils.getPage(new ArrayList<>(), pageable, count);
+        }
+
+        Map<ID, Integer> positions = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            positions.put(ids.get(i), i);
+        }
+        List<T> content = new ArrayList<>(contentQuery.apply(ids));
+        content.sort(Comparator.comparing(row -> positions.get(idOf.apply(row))));
+        return PageableExecutionUtils.getPage(content, pageable, count);
+    }
+
+    /**
+     * count 쿼리 없는 Slice 페이징 (무한 스크롤)
+     * pageSize + 1 건을 조회해서 다음 페이지가 있는지만 확인한다.
+     */
+    protected <T> Slice<T> applySlice(Pageable pageable,
+                                      Function<JPAQueryFactory, JPAQuery<T>> contentQuery) {
+        JPAQuery<T> jpaQuery = contentQuery.apply(getQueryFactory());
+        getQuerydsl().applySorting(pageable.getSort(), jpaQuery);
+        if (pageable.isPaged()) {
+            jpaQuery.offset(pageable.getOffset()).limit(pageable.getPageSize() + 1L);
+        }
+        return toSlice(jpaQuery.fetch(), pageable);
+    }
+
+    /**
+     * pageSize + 1 건까지 조회한 결과를 Slice 로 만든다. 한 건이 더 있으면 다음 페이지가 있다.
+     */
+    protected static <T> Slice<T> toSlice(List<T> rows, Pageable pageable) {
+        if (pageable.isUnpaged() || rows.size() <= pageable.getPageSize()) {
+            return new SliceImpl<>(rows, pageable, false);
+        }
+        return new SliceImpl<>(new ArrayList<>(rows.subList(0, pageable.getPageSize())), pageable, true);
+    }
+
+    /**
+     * 조회 전용 엔티티 쿼리 (ReadOnlyQuery)
+     * 반환된 엔티티는 dirty checking 대상이 아니므로 수정이 필요하면 쓰지 않는다.
+     */
+    protected <T> JPAQuery<T> readOnly(JPAQuery<T> query) {
+        return ReadOnlyQuery.of(query);
+    }
+
+    /**
+     * 컬럼 단위 조회 (ColumnarQuery)
+     * row 마다 객체를 만들지 않고 ResultSet 을 reader 가 직접 배열에 채운다.
+     */
+    protected <R> R fetchColumns(JPAQuery<?> query, ColumnarQuery.ColumnReader<R> reader) {
+        return ColumnarQuery.fetch(query, getEntityManager(), reader);
+    }
+
+    /**
+     * content 쿼리와 count 쿼리를 동시에 실행하는 페이징
+     * count 쿼리는 content 쿼리에서 자동으로 만든다.
+     */
+    protected <T> Page<T> applyParallelPagination(Pageable pageable,
+                                                  Function<JPAQueryFactory, JPAQuery<T>> contentQuery) {
+        JPAQuery<T> jpaQuery = contentQuery.apply(getQueryFactory());
+        LongSupplier count = countQuery(jpaQuery);
+        return fetchPageInParallel(pageable, () -> getQuerydsl().applyPagination(pageable, jpaQuery).fetch(), count);
+    }
+
+    /**
+     * count 를 countQueryExecutor 에서 별도의 읽기 전용 트랜잭션(EntityManager, 커넥션)으로 실행하고
+     * 그동안 현재 스레드에서 content 를 조회한다. 응답 시간은 둘 중 느린 쪽이 된다.
+     * 별도 커넥션에서는 커밋되지 않은 데이터가 보이지 않으므로, 쓰기 트랜잭션 안에서 호출하면 순차 실행한다.
+     * count 는 member.count-executor.query-timeout 을 넘기면 JDBC 에서 중단된다.
+     * content 조회가 실패하면 아직 시작하지 않은 count 는 실행하지 않고, 실행 중인 count 는 Statement.cancel 로 멈춘다.
+     * count 가 실패하면 그 예외를 그대로 던진다.
+     */
+    protected <T> Page<T> fetchPageInParallel(Pageable pageable, Supplier<List<T>> content, LongSupplier count) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PageableExecutionUtils.getPage(content.get(), pageable, count);
+        }
+
+        AtomicReference<SessionImplementor> countSession = new AtomicReference<>();
+        CompletableFuture<Long> countFuture = CompletableFuture.supplyAsync(
+                () -> readOnlyTransaction.execute(status -> {
+                    //Session 으로 꺼내면 공유 EntityManager 프록시가 나오므로 다른 스레드에서 쓸 수 있는 실제 세션을 꺼낸다.
+                    countSession.set(getEntityManager().unwrap(SessionImplementor.class));
+                    try {
+                        return count.getAsLong();
+                    } finally {
+                        countSession.set(null);
+                    }
+                }), countQueryExecutor);
+        List<T> result;
+        try {
+            result = content.get();
+        } catch (RuntimeException e) {
+            //CompletableFuture.cancel 은 실행 중인 작업을 멈추지 못하므로 JDBC Statement 를 직접 취소한다.
+            countFuture.cancel(false);
+            cancelQuery(countSession.get());
+            throw e;
+        }
+        return PageableExecutionUtils.getPage(result, pageable, () -> join(countFuture));
+    }
+
+    //count 가 막 끝나서 세션이 닫혔으면 취소할 쿼리도 없다.
+    private static void cancelQuery(SessionImplementor session) {
+        if (session == null) {
+            return;
+        }
+        try {
+            session.cancelQuery();
+        } catch (HibernateException | IllegalStateException ignored) {
+        }
+    }
+
+    private static long join(CompletableFuture<Long> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * content 쿼리로부터 select count(id) 쿼리를 만든다.
+     * 정렬/프로젝션은 버리고, 조건에서 참조하지 않는 left join 은 제거한다.
+     */
+    protected LongSupplier countQuery(JPAQuery<?> contentQuery) {
+        return CountQueryDeriver.derive(contentQuery, getEntityManager());
+    }
+
+    /**
+     * keyset(seek) 페이징
+     * offset 대신 이전 페이지 마지막 row 의 정렬 키(정렬 조건 + id)보다 뒤에 있는 row 만 조회하므로
+     * 페이지가 깊어져도 앞의 row 를 읽고 버리지 않는다.
+     * 정렬 키는 도메인 엔티티의 단순 속성이어야 한다. null 이 될 수 있는 속성은 nulls last 로 정렬한다.
+     *
+     * @param cursor       이전 페이지의 nextCursor, 첫 페이지는 null
+     * @param keyExtractor row 에서 정렬 속성 이름에 해당하는 값을 꺼낸다.
+     */
+    protected <T> KeysetPage<T> applyKeysetPagination(Pageable pageable, String cursor,
+                                                      Function<JPAQueryFactory, JPAQuery<T>> contentQuery,
+                                                      BiFunction<T, String, Object> keyExtractor) {
+        Sort sort = keysetSort(pageable.getSort());
+        JPAQuery<T> query = contentQuery.apply(getQueryFactory());
+        if (cursor != null) {
+            query.where(seekPredicate(sort, KeysetCursor.decode(sort, cursor)));
+        }
+        getQuerydsl().applySorting(sort, query);
+
+        int pageSize = pageable.getPageSize();
+        List<T> rows = query.limit(pageSize + 1L).fetch();
+        boolean hasNext = rows.size() > pageSize;
+        List<T> content = hasNext ? rows.subList(0, pageSize) : rows;
+
+        String nextCursor = null;
+        if (hasNext) {
+            T last = content.get(content.size() - 1);
+            List<Object> keys = new ArrayList<>();
+            for (Sort.Order order : sort) {
+                keys.add(keyExtractor.apply(last, order.getProperty()));
+            }
+            nextCursor = KeysetCursor.encode(sort, keys);
+        }
+        return new KeysetPage<>(content, pageSize, hasNext, nextCursor);
+    }
+
+    private Sort withIdTiebreaker(Sort sort) {
+        return sort.getOrderFor(idAttributeName) == null ? sort.and(Sort.by(idAttributeName)) : sort;
+    }
+
+    //정렬 키가 유일하도록 id 를 마지막 정렬 조건으로 붙이고, null 이 될 수 있는 키는 nulls last 로 정렬한다.
+    private Sort keysetSort(Sort sort) {
+        List<Sort.Order> orders = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            orders.add(isNullable(order.getProperty()) ? order.nullsLast() : order.nullsNative());
+        }
+        if (sort.getOrderFor(idAttributeName) == null) {
+            orders.add(Sort.Order.asc(idAttributeName));
+        }
+        return Sort.by(orders);
+    }
+
+    // (k1 > v1) or (k1 = v1 and k2 > v2) or ... , desc 인 키는 < 로 비교
+    // nulls last 인 키는 null 인 row 가 값이 있는 row 보다 뒤에 있고, null 다음에는 null 만 있다.
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Predicate seekPredicate(Sort sort, List<String> rawValues) {
+        BooleanBuilder seek = new BooleanBuilder();
+        BooleanBuilder equalPrefix = new BooleanBuilder();
+        int i = 0;
+        for (Sort.Order order : sort) {
+            ComparablePath<Comparable> path = builder.getComparable(order.getProperty(), Comparable.class);
+            String rawValue = rawValues.get(i++);
+            if (rawValue == null) {
+                equalPrefix.and(path.isNull());
+                continue;
+            }
+            Comparable value = convertKey(order.getProperty(), rawValue);
+            BooleanExpression step = order.isAscending() ? path.gt(value) : path.lt(value);
+            if (order.getNullHandling() == Sort.NullHandling.NULLS_LAST) {
+                step = step.or(path.isNull());
+            }
+            seek.or(new BooleanBuilder(equalPrefix).and(step));
+            equalPrefix.and(path.eq(value));
+        }
+        return seek;
+    }
+
+    //도메인 엔티티에 없는 속성이면 IllegalArgumentException
+    private Attribute<?, ?> attribute(String property) {
+        return entityManager.getMetamodel().entity(builder.getType()).getAttribute(property);
+    }
+
+    private boolean isNullable(String property) {
+        Attribute<?, ?> attribute = attribute(property);
+        return attribute instanceof SingularAttribute && ((SingularAttribute<?, ?>) attribute).isOptional();
+    }
+
+    private Comparable<?> convertKey(String property, String rawValue) {
+        Class<?> type = attribute(property).getJavaType();
+        try {
+            return (Comparable<?>) DefaultConversionService.getSharedInstance()
+                    .convert(rawValue, ClassUtils.resolvePrimitiveIfNecessary(type));
+        } catch (ConversionException e) {
+            throw new IllegalArgumentException("Invalid cursor value for " + property + ": " + rawValue, e);
+        }
+    }
+}
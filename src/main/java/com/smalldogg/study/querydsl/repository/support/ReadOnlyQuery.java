@@ -0,0 +1,42 @@
+package com.smalldogg.study.querydsl.repository.support;
+
+import com.querydsl.jpa.impl.JPAQuery;
+import org.hibernate.FlushMode;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.TypedQuery;
+
+/**
+ * 엔티티를 조회만 할 때 쓰는 하이버네이트 힌트
+ * - read-only : 로딩한 엔티티의 스냅샷을 만들지 않고 flush 시 dirty checking 대상에서 뺀다.
+ *   반환된 엔티티를 수정해도 DB 에 반영되지 않는다.
+ * - FlushMode.MANUAL : 쓰기 트랜잭션이 아니면 flush 할 변경이 없으므로 쿼리 전 자동 flush 를 건너뛴다.
+ *   쓰기 트랜잭션 안에서는 자기 변경이 조회되도록 자동 flush 를 유지한다.
+ */
+public final class ReadOnlyQuery {
+
+    private ReadOnlyQuery() {
+    }
+
+    public static <T> JPAQuery<T> of(JPAQuery<T> query) {
+        query.setHint(QueryHints.HINT_READONLY, true);
+        if (!inReadWriteTransaction()) {
+            query.setHint(QueryHints.HINT_FLUSH_MODE, FlushMode.MANUAL);
+        }
+        return query;
+    }
+
+    public static <T> TypedQuery<T> of(TypedQuery<T> query) {
+        query.setHint(QueryHints.HINT_READONLY, true);
+        if (!inReadWriteTransaction()) {
+            query.setHint(QueryHints.HINT_FLUSH_MODE, FlushMode.MANUAL);
+        }
+        return query;
+    }
+
+    private static boolean inReadWriteTransaction() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+}
@@ -0,0 +1,68 @@
+package com.smalldogg.study.querydsl.sql;
+
+import static com.querydsl.core.types.PathMetadataFactory.*;
+
+import com.querydsl.core.types.dsl.*;
+
+import com.querydsl.core.types.PathMetadata;
+import com.querydsl.core.types.Path;
+
+import com.querydsl.sql.ColumnMetadata;
+import java.sql.Types;
+
+
+/**
+ * member 테이블의 Querydsl SQL 쿼리 타입 (MetaDataSerializer 출력을 옮겨 와서 직접 관리한다)
+ * Member 엔티티 매핑을 바꾸면 같이 고쳐야 한다. SqlQueryTypesTest 가 하이버네이트 매핑, 실제 테이블과 비교한다.
+ */
+public class SMember extends com.querydsl.sql.RelationalPathBase<SMember> {
+
+    private static final long serialVersionUID = -1470813209L;
+
+    public static final SMember member = new SMember("MEMBER");
+
+    public final NumberPath<Integer> age = createNumber("age", Integer.class);
+
+    public final NumberPath<Long> memberId = createNumber("memberId", Long.class);
+
+    public final NumberPath<Long> teamId = createNumber("teamId", Long.class);
+
+    public final StringPath username = createString("username");
+
+    public final com.querydsl.sql.PrimaryKey<SMember> memberPk = createPrimaryKey(memberId);
+
+    public final com.querydsl.sql.ForeignKey<STeam> memberTeamFk = createForeignKey(teamId, "TEAM_ID");
+
+    public SMember(String variable) {
+        super(SMember.class, forVariable(variable), "PUBLIC", "MEMBER");
+        addMetadata();
+    }
+
+    public SMember(String variable, String schema, String table) {
+        super(SMember.class, forVariable(variable), schema, table);
+        addMetadata();
+    }
+
+    public SMember(String variable, String schema) {
+        super(SMember.class, forVariable(variable), schema, "MEMBER");
+        addMetadata();
+    }
+
+    public SMember(Path<? extends SMember> path) {
+        super(path.getType(), path.getMetadata(), "PUBLIC", "MEMBER");
+        addMetadata();
+    }
+
+    public SMember(PathMetadata metadata) {
+        super(SMember.class, metadata, "PUBLIC", "MEMBER");
+        addMetadata();
+    }
+
+    public void addMetadata() {
+        addMetadata(age, ColumnMetadata.named("AGE").withIndex(2).ofType(Types.INTEGER).withSize(32).notNull());
+        addMetadata(memberId, ColumnMetadata.named("MEMBER_ID").withIndex(1).ofType(Types.BIGINT).withSize(64).notNull());
+        addMetadata(teamId, ColumnMetadata.named("TEAM_ID").withIndex(4).ofType(Types.BIGINT).withSize(64));
+        addMetadata(username, ColumnMetadata.named("USERNAME").withIndex(3).ofType(Types.VARCHAR).withSize(255));
+    }
+
+}
@@ -0,0 +1,62 @@
+package com.smalldogg.study.querydsl.sql;
+
+import static com.querydsl.core.types.PathMetadataFactory.*;
+
+import com.querydsl.core.types.dsl.*;
+
+import com.querydsl.core.types.PathMetadata;
+import com.querydsl.core.types.Path;
+
+import com.querydsl.sql.ColumnMetadata;
+import java.sql.Types;
+
+
+/**
+ * team 테이블의 Querydsl SQL 쿼리 타입 (MetaDataSerializer 출력을 옮겨 와서 직접 관리한다)
+ * Team 엔티티 매핑을 바꾸면 같이 고쳐야 한다. SqlQueryTypesTest 가 하이버네이트 매핑, 실제 테이블과 비교한다.
+ */
+public class STeam extends com.querydsl.sql.RelationalPathBase<STeam> {
+
+    private static final long serialVersionUID = 1553452069L;
+
+    public static final STeam team = new STeam("TEAM");
+
+    public final StringPath name = createString("name");
+
+    public final NumberPath<Long> teamId = createNumber("teamId", Long.class);
+
+    public final com.querydsl.sql.PrimaryKey<STeam> teamPk = createPrimaryKey(teamId);
+
+    public final com.querydsl.sql.ForeignKey<SMember> _memberTeamFk = createInvForeignKey(teamId, "TEAM_ID");
+
+    public STeam(String variable) {
+        super(STeam.class, forVariable(variable), "PUBLIC", "TEAM");
+        addMetadata();
+    }
+
+    public STeam(String variable, String schema, String table) {
+        super(STeam.class, forVariable(variable), schema, table);
+        addMetadata();
+    }
+
+    public STeam(String variable, String schema) {
+        super(STeam.class, forVariable(variable), schema, "TEAM");
+        addMetadata();
+    }
+
+    public STeam(Path<? extends STeam> path) {
+        super(path.getType(), path.getMetadata(), "PUBLIC", "TEAM");
+        addMetadata();
+    }
+
+    public STeam(PathMetadata metadata) {
+        super(STeam.class, metadata, "PUBLIC", "TEAM");
+        addMetadata();
+    }
+
+    public void addMetadata() {
+        addMetadata(name, ColumnMetadata.named("NAME").withIndex(2).ofType(Types.VARCHAR).withSize(255));
+        addMetadata(teamId, ColumnMetadata.named("TEAM_ID").withIndex(1).ofType(Types.BIGINT).withSize(64).notNull());
+    }
+
+}
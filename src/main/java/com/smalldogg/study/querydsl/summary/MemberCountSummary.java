@@ -0,0 +1,199 @@
+package com.smalldogg.study.querydsl.summary;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Session;
+import org.hibernate.SharedSessionContract;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static com.smalldogg.study.querydsl.entity.QMember.member;
+
+/**
+ * member_team_age_count (MemberTeamAgeCount) 요약 테이블 갱신
+ * Member 변경과 같은 트랜잭션, 같은 커넥션에서 카운터를 더하고 뺀다.
+ * - 엔티티 변경 : MemberCountSummaryListener (insert/update/delete 이벤트)
+ * - 벌크 연산 : 대상 id 의 (팀, 나이)별 건수를 먼저 읽어서 그만큼 옮긴다.
+ * 같은 (팀, 나이) 카운터 row 는 동시에 쓰는 트랜잭션끼리 row 락을 기다리게 된다. (교착을 피하려고 항상 (팀, 나이) 순서로 갱신)
+ * 조회 쪽은 member.count-summary.enabled 로 끌 수 있고, 시작할 때 MemberCountSummaryInitializer 가 rebuild() 한다.
+ */
+@Component
+@RequiredArgsConstructor
+public class MemberCountSummary {
+
+    static final long NO_TEAM = 0L;
+
+    //카운터 row 가 있으면 더하고 없으면 만든다. (update 후 insert 를 따로 실행하면 그 사이에 다른 트랜잭션이 끼어든다)
+    private static final String MERGE_SQL =
+            "merge into member_team_age_count c"
+                    + " using (values (cast(? as bigint), cast(? as int), cast(? as bigint))) d (team_id, age, delta)"
+                    + " on c.team_id = d.team_id and c.age = d.age"
+                    + " when matched then update set member_count = c.member_count + d.delta"
+                    + " when not matched then insert (team_id, age, member_count) values (d.team_id, d.age, d.delta)";
+    //SQLState 23xxx : 무결성 제약 위반 (동시에 같은 카운터 row 를 insert)
+    private static final String INTEGRITY_VIOLATION = "23";
+
+    @PersistenceContext
+    private EntityManager em;
+    private final JPAQueryFactory queryFactory;
+    private final ThreadLocal<Map<Bucket, Long>> batchDeltas = new ThreadLocal<>();
+
+    /**
+     * 벌크 나이 변경 전에 호출한다. 대상 회원을 (팀, 나이) -> (팀, 나이 + amount) 로 옮긴다.
+     */
+    public void beforeBulkAddAge(Collection<Long> memberIds, int amount) {
+        Map<Bucket, Long> deltas = new LinkedHashMap<>();
+        for (Tuple row : countByBucket(memberIds)) {
+            long count = row.get(member.count());
+            Bucket bucket = bucket(row.get(member.team.id), row.get(member.age));
+            deltas.merge(bucket, -count, Long::sum);
+            deltas.merge(new Bucket(bucket.teamId, bucket.age + amount), count, Long::sum);
+        }
+        apply(em.unwrap(Session.class), deltas);
+    }
+
+    /**
+     * 벌크 삭제 전에 호출한다.
+     */
+    public void beforeBulkDelete(Collection<Long> memberIds) {
+        Map<Bucket, Long> deltas = new LinkedHashMap<>();
+        for (Tuple row : countByBucket(memberIds)) {
+            deltas.merge(bucket(row.get(member.team.id), row.get(member.age)), -row.get(member.count()), Long::sum);
+        }
+        apply(em.unwrap(Session.class), deltas);
+    }
+
+    /**
+     * member 테이블에서 요약 테이블을 다시 만든다. (요약 테이블 도입 전 데이터, 정합성 복구용)
+     */
+    public void rebuild() {
+        em.flush();
+        em.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement delete = connection.prepareStatement("delete from member_team_age_count");
+                 PreparedStatement insert = connection.prepareStatement(
+                         "insert into member_team_age_count (team_id, age, member_count)"
+                                 + " select coalesce(team_id, " + NO_TEAM + "), age, count(*) from member"
+                                 + " group by coalesce(team_id, " + NO_TEAM + "), age")) {
+                delete.executeUpdate();
+                insert.executeUpdate();
+            }
+        });
+    }
+
+    /**
+     * 대량 저장용 범위를 연다. 닫을 때까지 현재 스레드의 엔티티 이벤트로 인한 카운터 변경을 (팀, 나이)별로 합쳐 두고
+     * Batch.flush() 에서 한 번에 반영한다. 영속성 컨텍스트를 flush 한 직후에 Batch.flush() 를 호출한다.
+     * 이미 열린 범위 안에서 다시 열면 바깥 범위에 모은다.
+     */
+    public Batch openBatch() {
+        Map<Bucket, Long> deltas = batchDeltas.get();
+        if (deltas != null) {
+            return new Batch(deltas, false);
+        }
+        deltas = new LinkedHashMap<>();
+        batchDeltas.set(deltas);
+        return new Batch(deltas, true);
+    }
+
+    public final class Batch implements AutoCloseable {
+        private final Map<Bucket, Long> deltas;
+        private final boolean outermost;
+
+        private Batch(Map<Bucket, Long> deltas, boolean outermost) {
+            this.deltas = deltas;
+            this.outermost = outermost;
+        }
+
+        public void flush() {
+            apply(em.unwrap(Session.class), deltas);
+            deltas.clear();
+        }
+
+        //flush() 하지 않은 변경은 버린다. (예외로 트랜잭션이 롤백되는 경우)
+        @Override
+        public void close() {
+            if (outermost) {
+                batchDeltas.remove();
+            }
+        }
+    }
+
+    void increment(SharedSessionContract session, Long teamId, int age, long delta) {
+        Map<Bucket, Long> batch = batchDeltas.get();
+        if (batch != null) {
+            batch.merge(bucket(teamId, age), delta, Long::sum);
+            return;
+        }
+
+        Map<Bucket, Long> deltas = new LinkedHashMap<>();
+        deltas.put(bucket(teamId, age), delta);
+        apply(session, deltas);
+    }
+
+    /**
+     * (팀, 나이) 순서로 카운터마다 merge 한 번
+     * 두 트랜잭션이 동시에 없는 카운터 row 를 만들면 늦은 쪽은 기본 키 위반이 나는데, 그때는 row 가 생긴 것이므로 한 번 더 실행한다.
+     */
+    private void apply(SharedSessionContract session, Map<Bucket, Long> deltas) {
+        deltas.values().removeIf(delta -> delta == 0);
+        if (deltas.isEmpty()) {
+            return;
+        }
+        Map<Bucket, Long> ordered = new TreeMap<>(deltas);
+        session.doWork(connection -> {
+            try (PreparedStatement merge = connection.prepareStatement(MERGE_SQL)) {
+                for (Map.Entry<Bucket, Long> delta : ordered.entrySet()) {
+                    Bucket bucket = delta.getKey();
+                    merge.setLong(1, bucket.teamId);
+                    merge.setInt(2, bucket.age);
+                    merge.setLong(3, delta.getValue());
+                    try {
+                        merge.executeUpdate();
+                    } catch (SQLException e) {
+                        if (e.getSQLState() == null || !e.getSQLState().startsWith(INTEGRITY_VIOLATION)) {
+                            throw e;
+                        }
+                        merge.executeUpdate();
+                    }
+                }
+            }
+        });
+    }
+
+    private List<Tuple> countByBucket(Collection<Long> memberIds) {
+        return queryFactory
+                .select(member.team.id, member.age, member.count())
+                .from(member)
+                .where(member.id.in(memberIds))
+                .groupBy(member.team.id, member.age)
+                .fetch();
+    }
+
+    private static Bucket bucket(Long teamId, int age) {
+        return new Bucket(teamId != null ? teamId : NO_TEAM, age);
+    }
+
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    private static class Bucket implements Comparable<Bucket> {
+        private final long teamId;
+        private final int age;
+
+        @Override
+        public int compareTo(Bucket other) {
+            int byTeam = Long.compare(teamId, other.teamId);
+            return byTeam != 0 ? byTeam : Integer.compare(age, other.age);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.smalldogg.study.querydsl.summary;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 시작할 때 member 테이블에서 요약 테이블을 다시 만든다.
+ * 요약 테이블 도입 전 데이터나, 카운터를 갱신하지 않는 경로(SQL 직접 실행 등)로 바뀐 데이터가 있으면 count 가 틀리기 때문이다.
+ * member 테이블 전체를 group by 하므로 데이터가 많으면 member.count-summary.rebuild-on-startup=false 로 끄고
+ * 배포 전 마이그레이션으로 MemberCountSummary.rebuild() 와 같은 SQL 을 실행한다.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = {"member.count-summary.enabled", "member.count-summary.rebuild-on-startup"},
+        havingValue = "true", matchIfMissing = true)
+public class MemberCountSummaryInitializer {
+
+    private final MemberCountSummary countSummary;
+    private final TransactionTemplate transactionTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> countSummary.rebuild());
+        log.info("member_team_age_count rebuilt in {} ms", (System.nanoTime() - start) / 1_000_000);
+    }
+}
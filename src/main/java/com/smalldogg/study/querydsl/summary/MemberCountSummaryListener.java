@@ -0,0 +1,101 @@
+package com.smalldogg.study.querydsl.summary;
+
+import com.smalldogg.study.querydsl.entity.Member;
+import com.smalldogg.study.querydsl.entity.Team;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.internal.SessionFactoryImpl;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import java.util.Objects;
+
+/**
+ * Member insert/update/delete 가 실행된 직후(flush 중) MemberCountSummary 카운터를 갱신한다.
+ * JPA 엔티티 리스너는 변경 전 값을 알 수 없으므로, 변경 전/후 상태를 주는 하이버네이트 이벤트 리스너를 쓴다.
+ * changeTeam, 나이 변경처럼 (팀, 나이)가 바뀐 update 만 카운터를 옮긴다.
+ */
+@Component
+@RequiredArgsConstructor
+public class MemberCountSummaryListener implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final MemberCountSummary summary;
+
+    @PostConstruct
+    public void register() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImpl.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Member) {
+            Object[] state = event.getState();
+            EntityPersister persister = event.getPersister();
+            summary.increment(event.getSession(), teamId(persister, state), age(persister, state), 1);
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (!(event.getEntity() instanceof Member) || event.getOldState() == null) {
+            return;
+        }
+        EntityPersister persister = event.getPersister();
+        Long oldTeamId = teamId(persister, event.getOldState());
+        int oldAge = age(persister, event.getOldState());
+        Long newTeamId = teamId(persister, event.getState());
+        int newAge = age(persister, event.getState());
+        if (Objects.equals(oldTeamId, newTeamId) && oldAge == newAge) {
+            return;
+        }
+        summary.increment(event.getSession(), oldTeamId, oldAge, -1);
+        summary.increment(event.getSession(), newTeamId, newAge, 1);
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Member) {
+            Object[] state = event.getDeletedState();
+            EntityPersister persister = event.getPersister();
+            summary.increment(event.getSession(), teamId(persister, state), age(persister, state), -1);
+        }
+    }
+
+    //커밋 후가 아니라 flush 중에 같은 트랜잭션에서 갱신한다.
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    //하이버네이트 5.x 에서는 아직 추상 메서드라 구현해야 한다. (오타 이름, 하이버네이트는 위 메서드를 호출)
+    @Override
+    @Deprecated
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return requiresPostCommitHandling(persister);
+    }
+
+    //Team 프록시의 getId() 는 초기화하지 않는다.
+    private static Long teamId(EntityPersister persister, Object[] state) {
+        Team team = (Team) state[persister.getEntityMetamodel().getPropertyIndex("team")];
+        return team != null ? team.getId() : null;
+    }
+
+    private static int age(EntityPersister persister, Object[] state) {
+        return (Integer) state[persister.getEntityMetamodel().getPropertyIndex("age")];
+    }
+}
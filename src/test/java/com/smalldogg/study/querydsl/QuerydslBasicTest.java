@@ -17,6 +17,7 @@ import com.smalldogg.study.querydsl.entity.Member;
 import com.smalldogg.study.querydsl.entity.QMember;
 import com.smalldogg.study.querydsl.entity.QTeam;
 import com.smalldogg.study.querydsl.entity.Team;
+import com.smalldogg.study.querydsl.support.MaxQueries;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -314,6 +315,7 @@ public class QuerydslBasicTest {
     EntityManagerFactory emf;
 
     @Test
+    @MaxQueries(1)
     void fetchJoinNo() {
         em.flush();
         em.clear();
@@ -329,6 +331,7 @@ public class QuerydslBasicTest {
     }
 
     @Test
+    @MaxQueries(1)
     void fetchJoinUse() {
         em.flush();
         em.clear();
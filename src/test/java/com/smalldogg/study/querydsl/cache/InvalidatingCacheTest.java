@@ -0,0 +1,64 @@
+package com.smalldogg.study.querydsl.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InvalidatingCacheTest {
+
+    @Test
+    void invalidatedWhileLoading() {
+        InvalidatingCache<String, Long> cache = new InvalidatingCache<>(10, Duration.ofMinutes(1));
+
+        Long loaded = cache.get("key", () -> {
+            cache.invalidateAll();
+            return 1L;
+        });
+
+        assertThat(loaded).isEqualTo(1L);
+        assertThat(cache.get("key", () -> 2L)).as("로딩 중에 무효화된 값은 저장하지 않는다").isEqualTo(2L);
+    }
+
+    //세대 번호를 확인한 뒤 저장하기 직전에 다른 스레드의 커밋(무효화)이 끼어드는 경우
+    @Test
+    void invalidatedBetweenCheckAndStore() throws Exception {
+        CountDownLatch storing = new CountDownLatch(1);
+        CountDownLatch invalidated = new CountDownLatch(1);
+        InvalidatingCache<String, Long> cache = new InvalidatingCache<>(pausingBeforePut(storing, invalidated));
+
+        CompletableFuture<Long> reader = CompletableFuture.supplyAsync(() -> cache.get("key", () -> 1L));
+        assertThat(storing.await(5, TimeUnit.SECONDS)).isTrue();
+        cache.invalidateAll();
+        invalidated.countDown();
+
+        assertThat(reader.get(5, TimeUnit.SECONDS)).isEqualTo(1L);
+        assertThat(cache.get("key", () -> 2L)).as("무효화 이전에 읽은 값이 남지 않는다").isEqualTo(2L);
+    }
+
+    //첫 put 에서 storing 을 알리고 invalidated 까지 기다렸다가 저장하는 Cache
+    @SuppressWarnings("unchecked")
+    private static Cache<String, Long> pausingBeforePut(CountDownLatch storing, CountDownLatch invalidated) {
+        Cache<String, Long> delegate = Caffeine.newBuilder().build();
+        return (Cache<String, Long>) Proxy.newProxyInstance(Cache.class.getClassLoader(), new Class<?>[]{Cache.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("put") && storing.getCount() > 0) {
+                        storing.countDown();
+                        invalidated.await(5, TimeUnit.SECONDS);
+                    }
+                    try {
+                        return method.invoke(delegate, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+}
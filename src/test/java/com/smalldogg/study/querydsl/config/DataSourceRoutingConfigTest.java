@@ -0,0 +1,94 @@
+package com.smalldogg.study.querydsl.config;
+
+import com.smalldogg.study.querydsl.cache.MemberDataChangedEvent;
+import com.smalldogg.study.querydsl.entity.Member;
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//로컬에서는 H2 인메모리 DB 여러 개로 primary/replica 를 흉내낸다.
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:primary",
+        "member.datasource.routing.enabled=true",
+        "member.datasource.replicas[0].url=jdbc:h2:mem:replica1",
+        "member.datasource.replicas[1].url=jdbc:h2:mem:replica2",
+        "member.datasource.primary-read-window=300ms",
+        "spring.datasource.hikari.maximum-pool-size=7"
+})
+class DataSourceRoutingConfigTest {
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    @Qualifier("routingDataSource")
+    DataSource routingDataSource;
+
+    @Test
+    void readOnlyTransactionGoesToReplicas() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        TransactionTemplate readWrite = new TransactionTemplate(transactionManager);
+
+        List<String> urls = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            urls.add(readOnly.execute(status -> connectionUrl()));
+        }
+
+        assertThat(urls).containsExactly(
+                "jdbc:h2:mem:replica1", "jdbc:h2:mem:replica2", "jdbc:h2:mem:replica1", "jdbc:h2:mem:replica2");
+        String primaryUrl = readWrite.execute(status -> connectionUrl());
+        assertThat(primaryUrl).isEqualTo("jdbc:h2:mem:primary");
+    }
+
+    //변경 직후에는 replica 지연으로 캐시가 오래된 값으로 채워지지 않도록 primary 에서 읽는다.
+    @Test
+    void readsGoToPrimaryRightAfterChange() throws InterruptedException {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        eventPublisher.publishEvent(new MemberDataChangedEvent(Member.class));
+        String afterChange = readOnly.execute(status -> connectionUrl());
+        assertThat(afterChange).isEqualTo("jdbc:h2:mem:primary");
+
+        //replica 를 한 바퀴 돌아서 라운드 로빈 순서를 다른 테스트와 맞춘다.
+        Thread.sleep(400);
+        List<String> afterWindow = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            afterWindow.add(readOnly.execute(status -> connectionUrl()));
+        }
+        assertThat(afterWindow).containsExactlyInAnyOrder("jdbc:h2:mem:replica1", "jdbc:h2:mem:replica2");
+    }
+
+    @Test
+    void hikariPropertiesAppliedToEveryPool() throws SQLException {
+        //p6spy 로 감싸져 있다.
+        assertThat(routingDataSource.unwrap(ReplicaRoutingDataSource.class).getResolvedDataSources().values())
+                .hasSize(3)
+                .allSatisfy(dataSource -> assertThat(((HikariDataSource) dataSource).getMaximumPoolSize()).isEqualTo(7));
+    }
+
+    private String connectionUrl() {
+        return em.unwrap(Session.class).doReturningWork(connection -> connection.getMetaData().getURL());
+    }
+}
@@ -0,0 +1,197 @@
+package com.smalldogg.study.querydsl.controller;
+
+import com.smalldogg.study.querydsl.dto.MemberSearchCondition;
+import com.smalldogg.study.querydsl.entity.Member;
+import com.smalldogg.study.querydsl.entity.Team;
+import com.smalldogg.study.querydsl.repository.MemberJpaRepository;
+import com.smalldogg.study.querydsl.repository.MemberRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//비동기 조회는 jdbcExecutor 스레드에서 실행되므로 테스트 트랜잭션 없이 커밋된 데이터로 확인한다.
+@SpringBootTest(properties = {
+        "member.async.timeout=2s",
+        "member.jdbc-executor.pool-size=1",
+        "member.jdbc-executor.queue-capacity=1"
+})
+@AutoConfigureMockMvc
+class MemberControllerAsyncTest {
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @SpyBean
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    @Qualifier("jdbcExecutor")
+    ThreadPoolTaskExecutor jdbcExecutor;
+
+    //H2 에서 수십 초 걸리는 쿼리
+    private static final String SLOW_QUERY = "select sum(x) from system_range(1, 10000000000)";
+
+    CountDownLatch release = new CountDownLatch(1);
+    Team team;
+
+    @AfterEach
+    void cleanup() throws InterruptedException {
+        //막아 두었던 작업이 빠질 때까지 기다린다.
+        release.countDown();
+        awaitIdle();
+        if (team != null) {
+            transactionTemplate.executeWithoutResult(status -> {
+                MemberSearchCondition condition = new MemberSearchCondition();
+                condition.setTeamIds(List.of(team.getId()));
+                memberRepository.bulkDelete(condition);
+                em.remove(em.find(Team.class, team.getId()));
+            });
+        }
+    }
+
+    @Test
+    void asyncSearch() throws Exception {
+        team = transactionTemplate.execute(status -> {
+            Team saved = new Team("teamAsync");
+            em.persist(saved);
+            for (int i = 0; i < 3; i++) {
+                em.persist(new Member("async" + i, 10 + i, saved));
+            }
+            return saved;
+        });
+
+        MvcResult v1 = mockMvc.perform(get("/async/v1/members").param("teamName", "teamAsync"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(v1))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].username", contains("async0", "async1", "async2")));
+
+        for (String uri : List.of("/async/v2/members", "/async/v3/members")) {
+            MvcResult page = mockMvc.perform(get(uri).param("teamName", "teamAsync").param("size", "2"))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            mockMvc.perform(asyncDispatch(page))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.content[*].username", contains("async0", "async1")))
+                    .andExpect(jsonPath("$.totalElements").value(3));
+        }
+
+        //jdbcExecutor 에서 실행한 content, count 쿼리도 Server-Timing 에 포함된다. (count 캐시에 없는 조건)
+        MvcResult timed = mockMvc.perform(get("/async/v2/members").param("teamName", "teamAsync").param("ageGoe", "10")
+                        .param("size", "1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(timed))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Server-Timing", containsString("statements=2 ")));
+    }
+
+    @Test
+    void timeoutSkipsQueuedQuery() throws Exception {
+        blockExecutor();
+
+        //하나뿐인 스레드가 막혀 있으므로 큐에서 기다리다 타임아웃된다.
+        MvcResult result = mockMvc.perform(get("/async/v1/members"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        result.getAsyncResult(5_000);
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isServiceUnavailable());
+
+        //스레드가 풀려도 타임아웃된 작업은 조회하지 않는다.
+        release.countDown();
+        awaitIdle();
+        verify(memberJpaRepository, never()).search(any());
+    }
+
+    //503 으로 응답한 뒤에도 실행 중인 쿼리가 스레드와 커넥션을 쥐고 있지 않는다.
+    @Test
+    void timeoutStopsRunningQuery() throws Exception {
+        doAnswer(invocation -> em.createNativeQuery(SLOW_QUERY).getSingleResult())
+                .when(memberJpaRepository).search(any());
+
+        MvcResult result = mockMvc.perform(get("/async/v1/members"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        result.getAsyncResult(5_000);
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isServiceUnavailable());
+
+        //트랜잭션 타임아웃(2초, 올림)이 JDBC query timeout 으로 걸려서 곧 멈춘다.
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(3);
+        while (jdbcExecutor.getActiveCount() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(jdbcExecutor.getActiveCount()).isZero();
+    }
+
+    @Test
+    void rejectedWhenQueueIsFull() throws Exception {
+        blockExecutor();
+        jdbcExecutor.execute(this::awaitRelease);
+
+        mockMvc.perform(get("/async/v1/members"))
+                .andExpect(status().isServiceUnavailable());
+        verify(memberJpaRepository, never()).search(any());
+    }
+
+    private void blockExecutor() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        jdbcExecutor.execute(() -> {
+            started.countDown();
+            awaitRelease();
+        });
+        started.await(5, TimeUnit.SECONDS);
+    }
+
+    private void awaitRelease() {
+        try {
+            release.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void awaitIdle() throws InterruptedException {
+        while (jdbcExecutor.getActiveCount() > 0 || !jdbcExecutor.getThreadPoolExecutor().getQueue().isEmpty()) {
+            Thread.sleep(10);
+        }
+    }
+}
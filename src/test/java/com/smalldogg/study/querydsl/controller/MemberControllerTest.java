@@ -0,0 +1,111 @@
+package com.smalldogg.study.querydsl.controller;
+
+import com.smalldogg.study.querydsl.entity.Member;
+import com.smalldogg.study.querydsl.entity.Team;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+class MemberControllerTest {
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Test
+    void serverTiming() throws Exception {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        for (int i = 0; i < 3; i++) {
+            em.persist(new Member("member" + i, 10 + i, teamA));
+        }
+        em.flush();
+
+        MvcResult result = mockMvc.perform(get("/v3/members").param("size", "2"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        String serverTiming = result.getResponse().getHeader("Server-Timing");
+        assertThat(serverTiming)
+                .contains("sql;dur=")
+                .contains("statements=2 rows=3")
+                .contains("flush;dur=")
+                .contains("json;dur=");
+        assertThat(result.getResponse().getContentAsString()).contains("member0");
+    }
+
+    //Jackson 버퍼보다 큰 응답도 버퍼링 없이 헤더가 본문보다 먼저 나간다.
+    @Test
+    void serverTimingLargeResponse() throws Exception {
+        Team teamA = new Team("teamLarge");
+        em.persist(teamA);
+        for (int i = 0; i < 300; i++) {
+            em.persist(new Member("largeMember" + i, 10, teamA));
+        }
+        em.flush();
+
+        MvcResult result = mockMvc.perform(get("/v1/members").param("teamName", "teamLarge"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        assertThat(result.getResponse().getHeader("Server-Timing")).contains("json;dur=");
+        String body = result.getResponse().getContentAsString();
+        assertThat(body.length()).isGreaterThan(8192);
+        assertThat(body).endsWith("]").contains("largeMember299");
+    }
+
+    //v6 도 요청한 정렬을 따른다.
+    @Test
+    void sliceSorted() throws Exception {
+        Team teamA = new Team("teamSliceSort");
+        em.persist(teamA);
+        for (int i = 0; i < 3; i++) {
+            em.persist(new Member("sliceSort" + i, 10 + i, teamA));
+        }
+        em.flush();
+
+        mockMvc.perform(get("/v6/members").param("teamName", "teamSliceSort")
+                        .param("size", "2").param("sort", "age,desc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[*].age").value(contains(12, 11)))
+                .andExpect(jsonPath("$.last").value(false));
+    }
+
+    //page * size 가 int 범위를 넘으면 400
+    @Test
+    void offsetTooLarge() throws Exception {
+        mockMvc.perform(get("/v6/members").param("page", "2000000").param("size", "2000"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void keysetBadRequest() throws Exception {
+        mockMvc.perform(get("/v4/members").param("sort", "team"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/v4/members").param("sort", "age").param("cursor", "not a cursor"))
+                .andExpect(status().isBadRequest());
+        //정렬 조건이 커서를 만들 때와 다름
+        mockMvc.perform(get("/v4/members").param("sort", "username").param("cursor", "YWdlPTEwJmlkPTE"))
+                .andExpect(status().isBadRequest());
+        //값을 정렬 속성 타입으로 바꿀 수 없음 (age=abc&id=1)
+        mockMvc.perform(get("/v4/members").param("sort", "age").param("cursor", "YWdlPWFiYyZpZD0x"))
+                .andExpect(status().isBadRequest());
+    }
+}
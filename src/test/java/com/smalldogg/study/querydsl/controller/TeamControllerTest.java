@@ -0,0 +1,51 @@
+package com.smalldogg.study.querydsl.controller;
+
+import com.smalldogg.study.querydsl.entity.Member;
+import com.smalldogg.study.querydsl.entity.Team;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+class TeamControllerTest {
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Test
+    void teamStats() throws Exception {
+        Team teamA = new Team("teamStatsA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 25, teamA));
+        em.flush();
+
+        mockMvc.perform(get("/teams/stats").param("ageBucketSize", "10").param("memberCountGoe", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[?(@.teamName == 'teamStatsA')].ageBucket").isNotEmpty());
+    }
+
+    @Test
+    void badAgeBucketSize() throws Exception {
+        mockMvc.perform(get("/teams/stats").param("ageBucketSize", "0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/teams/stats").param("ageBucketSize", "-5"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/teams/stats").param("ageBucketSize", "1000000"))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,58 @@
+package com.smalldogg.study.querydsl.entity;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//2차 캐시는 트랜잭션 커밋 이후에 반영되므로 테스트 트랜잭션(롤백) 없이 EntityManager 를 직접 사용한다.
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class SecondLevelCacheTest {
+
+    @Autowired
+    EntityManagerFactory emf;
+
+    @Test
+    void findByIdAndLazyTeamFromCache() {
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        Team team = new Team("cacheTeam");
+        Member member = new Member("cacheMember", 10, team);
+        em.persist(team);
+        em.persist(member);
+        em.getTransaction().commit();
+        em.close();
+
+        CacheRegionStatistics memberRegion = emf.unwrap(SessionFactory.class).getStatistics()
+                .getDomainDataRegionStatistics(Member.class.getName());
+        CacheRegionStatistics teamRegion = emf.unwrap(SessionFactory.class).getStatistics()
+                .getDomainDataRegionStatistics(Team.class.getName());
+        long memberHits = memberRegion.getHitCount();
+        long teamHits = teamRegion.getHitCount();
+
+        try {
+            for (int i = 0; i < 2; i++) {
+                EntityManager reader = emf.createEntityManager();
+                Member findMember = reader.find(Member.class, member.getId());
+                assertThat(findMember.getTeam().getName()).isEqualTo("cacheTeam");
+                reader.close();
+            }
+
+            assertThat(memberRegion.getHitCount()).isGreaterThan(memberHits);
+            assertThat(teamRegion.getHitCount()).isGreaterThan(teamHits);
+        } finally {
+            EntityManager cleaner = emf.createEntityManager();
+            cleaner.getTransaction().begin();
+            cleaner.remove(cleaner.find(Member.class, member.getId()));
+            cleaner.remove(cleaner.find(Team.class, team.getId()));
+            cleaner.getTransaction().commit();
+            cleaner.close();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.smalldogg.study.querydsl.metrics;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.smalldogg.study.querydsl.entity.Member;
+import com.smalldogg.study.querydsl.entity.Team;
+import com.smalldogg.study.querydsl.support.MaxQueries;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+
+import static com.smalldogg.study.querydsl.entity.QMember.member;
+import static com.smalldogg.study.querydsl.entity.QTeam.team;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class QueryCounterTest {
+    @PersistenceContext
+    EntityManager em;
+
+    JPAQueryFactory queryFactory;
+
+    @BeforeEach
+    void before() {
+        queryFactory = new JPAQueryFactory(em);
+        for (int i = 0; i < 4; i++) {
+            Team t = new Team("team" + i);
+            em.persist(t);
+            em.persist(new Member("member" + i, 10 + i, t));
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    void detectNPlusOne() {
+        QueryCounter.Scope scope;
+        try (QueryCounter.Scope s = QueryCounter.open()) {
+            scope = s;
+            List<Member> members = queryFactory.selectFrom(member).fetch();
+            members.forEach(m -> m.getTeam().getName()); //team 을 하나씩 지연 로딩
+        }
+
+        assertThat(scope.getCount()).isEqualTo(5);
+        assertThat(scope.getRepeated()).hasSize(1).containsValue(4);
+    }
+
+    @Test
+    @MaxQueries(1)
+    void fetchJoinHasNoNPlusOne() {
+        List<Member> members = queryFactory
+                .selectFrom(member)
+                .join(member.team, team).fetchJoin()
+                .fetch();
+        members.forEach(m -> m.getTeam().getName());
+
+        assertThat(members).hasSize(4);
+    }
+}
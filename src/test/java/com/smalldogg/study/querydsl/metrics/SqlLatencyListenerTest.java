@@ -0,0 +1,96 @@
+package com.smalldogg.study.querydsl.metrics;
+
+import com.smalldogg.study.querydsl.dto.MemberSearchCondition;
+import com.smalldogg.study.querydsl.entity.Member;
+import com.smalldogg.study.querydsl.entity.Team;
+import com.smalldogg.study.querydsl.repository.MemberRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class SqlLatencyListenerTest {
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MeterRegistry registry;
+
+    @Test
+    void recordsSearchAndCountLatency() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        for (int i = 0; i < 3; i++) {
+            em.persist(new Member("member" + i, 10 + i, teamA));
+        }
+        em.flush();
+
+        //회원명 조건이 있어야 요약 테이블(sum)이 아니라 member 테이블에서 count 한다.
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernames(List.of("member0", "member1", "member2"));
+        memberRepository.searchPageComplex(condition, PageRequest.of(0, 2));
+
+        assertThat(count("execute", "write")).isPositive();
+        assertThat(count("execute", "search")).isPositive();
+        assertThat(count("fetch", "search")).isPositive();
+        assertThat(count("execute", "count")).isPositive();
+    }
+
+    @Test
+    void summaryCountLatency() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member0", 10, teamA));
+        em.persist(new Member("member1", 11, teamA));
+        em.flush();
+        long before = count("execute", "count");
+
+        //조건이 없으면 요약 테이블의 카운터를 더한다. (첫 페이지가 가득 차야 count 를 실행한다)
+        memberRepository.searchPageComplex(new MemberSearchCondition(), PageRequest.of(0, 1));
+
+        assertThat(count("execute", "count")).isGreaterThan(before);
+    }
+
+    @Test
+    void category() {
+        assertThat(SqlLatencyListener.category("select count(m.member_id) from member m")).isEqualTo("count");
+        assertThat(SqlLatencyListener.category(" SELECT m.member_id from member m")).isEqualTo("search");
+        assertThat(SqlLatencyListener.category("update member set age=?")).isEqualTo("write");
+        assertThat(SqlLatencyListener.category("call next value for member_seq")).isEqualTo("other");
+        //요약 테이블에서 답하는 count
+        assertThat(SqlLatencyListener.category("select sum(membertea0_.member_count) as col_0_0_ from member_team_age_count membertea0_"))
+                .isEqualTo("count");
+        assertThat(SqlLatencyListener.category("merge into member_team_age_count c using (values (?, ?, ?))")).isEqualTo("write");
+
+        //hibernate.use_sql_comments
+        assertThat(SqlLatencyListener.category("/* select count(m) from Member m */ select count(member0_.member_id) from member member0_"))
+                .isEqualTo("count");
+        assertThat(SqlLatencyListener.category("/* insert com.smalldogg.study.querydsl.entity.Member\n */ insert into member (age) values (?)"))
+                .isEqualTo("write");
+        assertThat(SqlLatencyListener.category("-- note\n /* a */ /* b */select m.member_id from member m")).isEqualTo("search");
+        assertThat(SqlLatencyListener.category("/* unterminated select")).isEqualTo("other");
+    }
+
+    private long count(String phase, String category) {
+        return registry.find(SqlLatencyListener.METER_NAME)
+                .tag("phase", phase)
+                .tag("category", category)
+                .timers().stream()
+                .mapToLong(Timer::count)
+                .sum();
+    }
+}
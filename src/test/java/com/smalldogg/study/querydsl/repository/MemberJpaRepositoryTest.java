@@ -1,24 +1,35 @@
 package com.smalldogg.study.querydsl.repository;
 
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.smalldogg.study.querydsl.cache.MemberDataChangedEvent;
 import com.smalldogg.study.querydsl.dto.MemberSearchCondition;
 import com.smalldogg.study.querydsl.dto.MemberTeamDto;
 import com.smalldogg.study.querydsl.entity.Member;
 import com.smalldogg.study.querydsl.entity.Team;
+import com.smalldogg.study.querydsl.metrics.QueryCounter;
+import com.smalldogg.study.querydsl.support.MaxQueries;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionImplementor;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.*;
 
 @SpringBootTest
 @Transactional
+@RecordApplicationEvents
 class MemberJpaRepositoryTest {
 
     @PersistenceContext
@@ -27,6 +38,9 @@ class MemberJpaRepositoryTest {
     @Autowired
     MemberJpaRepository memberJpaRepository;
 
+    @Autowired
+    ApplicationEvents events;
+
 
     @Test
     void basicTest() {
@@ -43,6 +57,23 @@ class MemberJpaRepositoryTest {
         assertThat(result2).containsExactly(member);
     }
 
+    @Test
+    void findAllReadOnly() {
+        Member member = new Member("member1", 10);
+        memberJpaRepository.save(member);
+        em.flush();
+        em.clear();
+
+        Member findMember = memberJpaRepository.findAll().get(0);
+        assertThat(em.unwrap(Session.class).isReadOnly(findMember)).isTrue();
+
+        //read-only 엔티티는 dirty checking 대상이 아니다.
+        findMember.setAge(20);
+        em.flush();
+        em.clear();
+        assertThat(memberJpaRepository.findById(member.getId()).get().getAge()).isEqualTo(10);
+    }
+
     @Test
     void basicQuerydslTest() {
         Member member = new Member("member1", 10);
@@ -59,6 +90,7 @@ class MemberJpaRepositoryTest {
     }
 
     @Test
+    @MaxQueries(5)
     void searchTest() {
         Team teamA = new Team("teamA");
         Team teamB = new Team("teamB");
@@ -87,5 +119,106 @@ class MemberJpaRepositoryTest {
 //        List<MemberTeamDto> result = memberJpaRepository.searchByBuilder(condition);
 
         assertThat(result).extracting("username").containsExactly("member4");
+
+        MemberSearchCondition inCondition = new MemberSearchCondition();
+        inCondition.setUsernames(Arrays.asList("member1", "member2", "member4"));
+        inCondition.setTeamIds(Arrays.asList(teamA.getId()));
+
+        assertThat(memberJpaRepository.search(inCondition)).extracting("username")
+                .containsExactly("member1", "member2");
+        assertThat(memberJpaRepository.searchByBuilder(inCondition)).extracting("username")
+                .containsExactly("member1", "member2");
+
+        //빈 문자열만 있으면 조건이 없는 것과 같다.
+        MemberSearchCondition blankCondition = new MemberSearchCondition();
+        blankCondition.setUsernames(Arrays.asList("", " ", null));
+        blankCondition.setTeamNames(Arrays.asList("teamB", ""));
+        assertThat(memberJpaRepository.search(blankCondition)).extracting("username")
+                .containsExactly("member3", "member4");
+        assertThat(memberJpaRepository.searchByBuilder(blankCondition)).extracting("username")
+                .containsExactly("member3", "member4");
+    }
+
+    @Test
+    @MaxQueries(1)
+    void searchStreamTest() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamB");
+
+        List<MemberTeamDto> result = new ArrayList<>();
+        memberJpaRepository.searchStream(condition, result::add);
+
+        assertThat(result).extracting("username").containsExactly("member3", "member4");
+    }
+
+    @Test
+    void saveAllTest() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        Member existing = new Member("existing", 1, teamA);
+        em.persist(existing);
+        em.flush();
+        events.clear();
+
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            members.add(new Member("member" + i, i % 2, teamA));
+        }
+        try (QueryCounter.Scope scope = QueryCounter.open()) {
+            memberJpaRepository.saveAll(members);
+
+            //요약 테이블은 row(250) 마다가 아니라 flush(3번) 마다 (팀, 나이)(2개)별로 merge 한 번씩 갱신한다.
+            int summaryWrites = scope.getStatements().entrySet().stream()
+                    .filter(statement -> statement.getKey().startsWith("merge into member_team_age_count"))
+                    .mapToInt(Map.Entry::getValue)
+                    .sum();
+            assertThat(summaryWrites).isBetween(1, 3 * 2);
+        }
+        assertThat(events.stream(MemberDataChangedEvent.class)
+                .filter(event -> event.getEntityType() == Member.class))
+                .as("변경 이벤트는 한 번만 발행").hasSize(1);
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        assertThat(memberJpaRepository.search(condition)).hasSize(251);
+        assertThat(em.contains(members.get(0))).isFalse();
+        //저장한 회원만 분리하고 호출한 쪽의 엔티티는 그대로 둔다.
+        assertThat(em.contains(teamA)).isTrue();
+        assertThat(em.contains(existing)).isTrue();
+        //영속 상태로 남은 Team 도 저장한 회원을 참조하지 않는다. (영속성 컨텍스트에는 teamA, existing 만)
+        assertThat(teamA.getMembers()).containsExactly(existing);
+        assertThat(em.unwrap(SessionImplementor.class).getPersistenceContext().getNumberOfManagedEntities())
+                .isEqualTo(2);
+    }
+
+    @Test
+    void saveAllTeamsTest() {
+        List<Team> teams = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            teams.add(new Team("batchTeam" + i));
+        }
+        try (QueryCounter.Scope scope = QueryCounter.open()) {
+            memberJpaRepository.saveAllTeams(teams);
+
+            //batch 로 묶여도 statement 는 insert 한 종류
+            assertThat(scope.getStatements()).containsKey("insert into team (name, team_id) values (?, ?)");
+        }
+        assertThat(teams).noneMatch(em::contains);
+
+        //준영속 Team 으로도 회원을 저장할 수 있다.
+        memberJpaRepository.saveAll(List.of(new Member("batchMember", 10, teams.get(0))));
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("batchTeam0");
+        assertThat(memberJpaRepository.search(condition)).extracting("username").containsExactly("batchMember");
     }
-}
\ No newline at end of file
+}
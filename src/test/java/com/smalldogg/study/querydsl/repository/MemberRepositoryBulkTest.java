@@ -0,0 +1,130 @@
+package com.smalldogg.study.querydsl.repository;
+
+import com.smalldogg.study.querydsl.cache.MemberDataChangedEvent;
+import com.smalldogg.study.querydsl.dto.MemberSearchCondition;
+import com.smalldogg.study.querydsl.entity.Member;
+import com.smalldogg.study.querydsl.entity.Team;
+import com.smalldogg.study.querydsl.metrics.QueryCounter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+//청크마다 커밋되는지 보려면 테스트 트랜잭션 없이 실행해야 한다. (데이터는 직접 정리)
+@SpringBootTest(properties = "member.bulk.chunk-size=2")
+@RecordApplicationEvents
+class MemberRepositoryBulkTest {
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    ApplicationEvents events;
+
+    Team team;
+
+    @AfterEach
+    void cleanup() {
+        if (team != null) {
+            transactionTemplate.executeWithoutResult(status -> {
+                MemberSearchCondition condition = new MemberSearchCondition();
+                condition.setTeamIds(List.of(team.getId()));
+                memberRepository.bulkDelete(condition);
+                em.remove(em.find(Team.class, team.getId()));
+            });
+        }
+    }
+
+    @Test
+    void bulkAddAgeCommitsPerChunk() {
+        team = saveTeam("teamBulkChunk", 5);
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamBulkChunk");
+        events.clear();
+
+        try (QueryCounter.Scope scope = QueryCounter.open()) {
+            assertThat(memberRepository.bulkAddAge(condition, 1)).isEqualTo(5);
+
+            //5건을 2건씩 : update 가 3번 (in 절 파라미터 수가 달라서 SQL 은 두 종류)
+            int updates = scope.getStatements().entrySet().stream()
+                    .filter(statement -> statement.getKey().startsWith("update member set"))
+                    .mapToInt(Map.Entry::getValue)
+                    .sum();
+            assertThat(updates).isEqualTo(3);
+        }
+        //청크마다 트랜잭션이 끝나므로 변경 이벤트가 청크마다 (즉시 + 완료 시점) 두 번 발행된다.
+        assertThat(events.stream(MemberDataChangedEvent.class)).hasSize(3 * 2);
+        assertThat(memberRepository.search(condition)).extracting("age").containsExactly(11, 12, 13, 14, 15);
+    }
+
+    @Test
+    void bulkDeleteRemovesFromTeamMembers() {
+        team = saveTeam("teamBulkDelete", 3);
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamBulkDelete");
+        condition.setAgeGoe(11);
+
+        //Team.members 를 2차 캐시에 올린다.
+        transactionTemplate.executeWithoutResult(status ->
+                assertThat(em.find(Team.class, team.getId()).getMembers()).hasSize(3));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Team loaded = em.find(Team.class, team.getId());
+            assertThat(loaded.getMembers()).hasSize(3);
+
+            assertThat(memberRepository.bulkDelete(condition)).isEqualTo(2);
+
+            //같은 영속성 컨텍스트에 올라와 있던 컬렉션에서도 빠진다.
+            assertThat(loaded.getMembers()).extracting("age").containsExactly(10);
+        });
+
+        transactionTemplate.executeWithoutResult(status ->
+                assertThat(em.find(Team.class, team.getId()).getMembers()).extracting("age").containsExactly(10));
+    }
+
+    @Test
+    void bulkFlushesPendingChangesFirst() {
+        team = saveTeam("teamBulkFlush", 3);
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamBulkFlush");
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Member dirty = em.createQuery("select m from Member m where m.team.id = :teamId and m.age = 10", Member.class)
+                    .setParameter("teamId", team.getId())
+                    .getSingleResult();
+            dirty.setUsername("renamed");
+
+            memberRepository.bulkAddAge(condition, 1);
+        });
+
+        assertThat(memberRepository.search(condition)).extracting("username", "age")
+                .contains(tuple("renamed", 11));
+    }
+
+    private Team saveTeam(String name, int memberCount) {
+        return transactionTemplate.execute(status -> {
+            Team saved = new Team(name);
+            em.persist(saved);
+            for (int i = 0; i < memberCount; i++) {
+                em.persist(new Member(name + i, 10 + i, saved));
+            }
+            return saved;
+        });
+    }
+}
@@ -1,22 +1,35 @@
 package com.smalldogg.study.querydsl.repository;
 
+import com.smalldogg.study.querydsl.dto.MemberColumns;
 import com.smalldogg.study.querydsl.dto.MemberSearchCondition;
 import com.smalldogg.study.querydsl.dto.MemberTeamDto;
+import com.smalldogg.study.querydsl.dto.TeamStatsCondition;
+import com.smalldogg.study.querydsl.dto.TeamStatsDto;
 import com.smalldogg.study.querydsl.entity.Member;
 import com.smalldogg.study.querydsl.entity.QMember;
 import com.smalldogg.study.querydsl.entity.Team;
+import com.smalldogg.study.querydsl.metrics.QueryCounter;
+import com.smalldogg.study.querydsl.repository.support.KeysetPage;
+import com.smalldogg.study.querydsl.support.MaxQueries;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 
 @SpringBootTest
 @Transactional
@@ -27,6 +40,9 @@ class MemberRepositoryTest {
     @Autowired
     MemberRepository memberRepository;
 
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
 
     @Test
     void basicTest() {
@@ -44,6 +60,7 @@ class MemberRepositoryTest {
     }
 
     @Test
+    @MaxQueries(1)
     void searchTest() {
         Team teamA = new Team("teamA");
         Team teamB = new Team("teamB");
@@ -74,6 +91,7 @@ class MemberRepositoryTest {
     }
 
     @Test
+    @MaxQueries(2)
     void searchPageSimple() {
         Team teamA = new Team("teamA");
         Team teamB = new Team("teamB");
@@ -102,6 +120,259 @@ class MemberRepositoryTest {
                 .containsExactly("member1","member2","member3");
     }
 
+    //count 캐시는 쓰기 트랜잭션 밖에서만 쓰므로 커밋된 데이터로 확인 (같은 페이지를 무효화 전후로 다시 조회하므로 반복 기준을 올린다)
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @MaxQueries(value = 7, repeatThreshold = 4)
+    void searchPageCountCacheInvalidatedOnPersist() {
+        Team teamC = transactionTemplate.execute(status -> {
+            Team team = new Team("teamCount");
+            em.persist(team);
+            em.persist(new Member("count1", 10, team));
+            em.persist(new Member("count2", 20, team));
+            em.persist(new Member("count3", 30, team));
+            return team;
+        });
+
+        try {
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setTeamName("teamCount");
+            PageRequest pageRequest = PageRequest.of(0, 2);
+
+            assertThat(memberRepository.searchPageSimple(condition, pageRequest).getTotalElements()).isEqualTo(3);
+            try (QueryCounter.Scope scope = QueryCounter.open()) {
+                assertThat(memberRepository.searchPageSimple(condition, pageRequest).getTotalElements()).isEqualTo(3);
+                assertThat(scope.getCount()).as("캐시에서 응답").isZero();
+            }
+
+            transactionTemplate.executeWithoutResult(status ->
+                    em.persist(new Member("count4", 40, em.find(Team.class, teamC.getId()))));
+
+            assertThat(memberRepository.searchPageSimple(condition, pageRequest).getTotalElements()).isEqualTo(4);
+            assertThat(memberRepository.searchPageComplex(condition, pageRequest).getTotalElements()).isEqualTo(4);
+        } finally {
+            transactionTemplate.executeWithoutResult(status -> {
+                MemberSearchCondition condition = new MemberSearchCondition();
+                condition.setTeamIds(List.of(teamC.getId()));
+                memberRepository.bulkDelete(condition);
+                em.remove(em.find(Team.class, teamC.getId()));
+            });
+        }
+    }
+
+    //캐시된 DTO 를 호출한 쪽에서 바꿔도 다음 조회에는 영향이 없다.
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @MaxQueries(5)
+    void searchCacheReturnsCopies() {
+        Team teamCopy = transactionTemplate.execute(status -> {
+            Team team = new Team("teamCopy");
+            em.persist(team);
+            em.persist(new Member("copy1", 10, team));
+            return team;
+        });
+
+        try {
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setTeamName("teamCopy");
+            PageRequest pageRequest = PageRequest.of(0, 10);
+
+            memberRepository.search(condition).get(0).setUsername("changed");
+            memberRepository.searchPageComplex(condition, pageRequest).getContent().get(0).setUsername("changed");
+            memberRepository.searchSliceSimple(condition, pageRequest).getContent().get(0).setUsername("changed");
+
+            assertThat(memberRepository.search(condition)).extracting("username").containsExactly("copy1");
+            assertThat(memberRepository.searchPageComplex(condition, pageRequest).getContent())
+                    .extracting("username").containsExactly("copy1");
+            assertThat(memberRepository.searchSliceSimple(condition, pageRequest).getContent())
+                    .extracting("username").containsExactly("copy1");
+        } finally {
+            transactionTemplate.executeWithoutResult(status -> {
+                MemberSearchCondition condition = new MemberSearchCondition();
+                condition.setTeamIds(List.of(teamCopy.getId()));
+                memberRepository.bulkDelete(condition);
+                em.remove(em.find(Team.class, teamCopy.getId()));
+            });
+        }
+    }
+
+    //별도 커넥션의 count 가 데이터를 볼 수 있도록 트랜잭션 밖에서 커밋된 데이터로 확인
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @MaxQueries(3)
+    void searchPageParallel() {
+        Team teamP = transactionTemplate.execute(status -> {
+            Team team = new Team("teamParallel");
+            em.persist(team);
+            for (int i = 0; i < 5; i++) {
+                em.persist(new Member("parallel" + i, 10 + i, team));
+            }
+            return team;
+        });
+
+        try {
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setTeamName("teamParallel");
+
+            Page<MemberTeamDto> result = memberRepository.searchPageParallel(condition, PageRequest.of(0, 2));
+
+            assertThat(result.getTotalElements()).isEqualTo(5);
+            assertThat(result.getContent()).extracting("username").containsExactly("parallel0", "parallel1");
+        } finally {
+            //요약 테이블(MemberTeamAgeCount)도 같이 갱신되도록 리포지토리 벌크 삭제를 쓴다.
+            transactionTemplate.executeWithoutResult(status -> {
+                MemberSearchCondition condition = new MemberSearchCondition();
+                condition.setTeamIds(List.of(teamP.getId()));
+                memberRepository.bulkDelete(condition);
+                em.remove(em.find(Team.class, teamP.getId()));
+            });
+        }
+    }
+
+    //캐시는 쓰기 트랜잭션 밖에서만 쓰므로 커밋된 데이터로 확인
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @MaxQueries(2)
+    void searchCacheInvalidatedOnCommit() {
+        Member cached = transactionTemplate.execute(status -> {
+            Team team = new Team("teamCache");
+            em.persist(team);
+            Member member = new Member("cache1", 10, team);
+            em.persist(member);
+            return member;
+        });
+
+        try {
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setTeamName("teamCache");
+            PageRequest pageRequest = PageRequest.of(0, 10);
+
+            assertThat(memberRepository.searchPageComplex(condition, pageRequest).getContent())
+                    .extracting("age").containsExactly(10);
+            try (QueryCounter.Scope scope = QueryCounter.open()) {
+                memberRepository.searchPageComplex(condition, pageRequest);
+                assertThat(scope.getCount()).as("캐시에서 응답").isZero();
+            }
+
+            transactionTemplate.executeWithoutResult(status -> em.find(Member.class, cached.getId()).setAge(11));
+
+            assertThat(memberRepository.searchPageComplex(condition, pageRequest).getContent())
+                    .extracting("age").containsExactly(11);
+        } finally {
+            transactionTemplate.executeWithoutResult(status -> {
+                Member member = em.find(Member.class, cached.getId());
+                Team team = member.getTeam();
+                em.remove(member);
+                em.remove(team);
+            });
+        }
+    }
+
+    @Test
+    @MaxQueries(3)
+    void searchKeyset() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+        em.persist(new Member("member5", 40, teamB));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        PageRequest pageRequest = PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "age"));
+
+        KeysetPage<MemberTeamDto> page1 = memberRepository.searchKeyset(condition, pageRequest, null);
+        assertThat(page1.getContent()).extracting("username").containsExactly("member4", "member5");
+        assertThat(page1.isHasNext()).isTrue();
+
+        KeysetPage<MemberTeamDto> page2 = memberRepository.searchKeyset(condition, pageRequest, page1.getNextCursor());
+        assertThat(page2.getContent()).extracting("username").containsExactly("member3", "member2");
+
+        KeysetPage<MemberTeamDto> page3 = memberRepository.searchKeyset(condition, pageRequest, page2.getNextCursor());
+        assertThat(page3.getContent()).extracting("username").containsExactly("member1");
+        assertThat(page3.isHasNext()).isFalse();
+        assertThat(page3.getNextCursor()).isNull();
+    }
+
+    //username 이 null 인 row 는 nulls last 로 뒤에 오고, 같은 null 끼리는 id 순
+    @Test
+    @MaxQueries(3)
+    void searchKeysetNullKey() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        Member nullName1 = new Member(null, 10, teamA);
+        em.persist(nullName1);
+        em.persist(new Member("member2", 20, teamA));
+        Member nullName2 = new Member(null, 30, teamA);
+        em.persist(nullName2);
+        em.persist(new Member("member1", 40, teamA));
+        Member nullName3 = new Member(null, 50, teamA);
+        em.persist(nullName3);
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        PageRequest pageRequest = PageRequest.of(0, 2, Sort.by(Sort.Direction.ASC, "username"));
+
+        KeysetPage<MemberTeamDto> page1 = memberRepository.searchKeyset(condition, pageRequest, null);
+        assertThat(page1.getContent()).extracting("username").containsExactly("member1", "member2");
+
+        KeysetPage<MemberTeamDto> page2 = memberRepository.searchKeyset(condition, pageRequest, page1.getNextCursor());
+        assertThat(page2.getContent()).extracting("memberId").containsExactly(nullName1.getId(), nullName2.getId());
+
+        KeysetPage<MemberTeamDto> page3 = memberRepository.searchKeyset(condition, pageRequest, page2.getNextCursor());
+        assertThat(page3.getContent()).extracting("memberId").containsExactly(nullName3.getId());
+        assertThat(page3.isHasNext()).isFalse();
+    }
+
+    @Test
+    void bulkAddAge() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        Member member1 = new Member("member1", 10, teamA);
+        Member member2 = new Member("member2", 20, teamA);
+        Member member3 = new Member("member3", 30, teamB);
+        Member member4 = new Member("member4", 40, teamB);
+        em.persist(member1);
+        em.persist(member2);
+        em.persist(member3);
+        em.persist(member4);
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamB");
+
+        long count = memberRepository.bulkAddAge(condition, 1);
+
+        //벌크 연산 대상만 영속성 컨텍스트에서 분리된다.
+        assertThat(count).isEqualTo(2);
+        assertThat(em.contains(member1)).isTrue();
+        assertThat(em.contains(member3)).isFalse();
+        assertThat(memberRepository.findById(member3.getId()).get().getAge()).isEqualTo(31);
+        assertThat(memberRepository.findById(member4.getId()).get().getAge()).isEqualTo(41);
+    }
+
+    @Test
+    void bulkDelete() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamA));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(18);
+
+        assertThat(memberRepository.bulkDelete(condition)).isEqualTo(2);
+        assertThat(memberRepository.search(new MemberSearchCondition()))
+                .extracting("username").containsExactly("member1");
+    }
+
     @Test
     void querydslPredicateExecutorTest() {
         Team teamA = new Team("teamA");
@@ -131,4 +402,301 @@ class MemberRepositoryTest {
         }
 
     }
-}
\ No newline at end of file
+
+    @Test
+    @MaxQueries(3)
+    void searchColumns() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        Member member1 = new Member("member1", 10, teamA);
+        Member member2 = new Member("member2", 20, teamB);
+        Member member3 = new Member("member3", 30, teamA);
+        Member member4 = new Member("member4", 40);
+        em.persist(member1);
+        em.persist(member2);
+        em.persist(member3);
+        em.persist(member4);
+
+        //flush 하지 않아도 쓰기 트랜잭션이면 조회 전에 flush 한다.
+        MemberColumns all = memberRepository.searchColumns(new MemberSearchCondition());
+        assertThat(all.getSize()).isEqualTo(4);
+        assertThat(all.getMemberIds()).containsExactly(member1.getId(), member2.getId(), member3.getId(), member4.getId());
+        assertThat(all.getAges()).containsExactly(10, 20, 30, 40);
+        assertThat(all.getTeamIds()).containsExactly(teamA.getId(), teamB.getId(), teamA.getId(), 0L);
+        assertThat(all.getTeamNames()).containsExactly("teamA", "teamB");
+        assertThat(all.getTeamNameCodes()).containsExactly(0, 1, 0, -1);
+        assertThat(all.teamName(3)).isNull();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamNames(List.of("teamA", "teamB"));
+        condition.setAgeGoe(20);
+        MemberColumns filtered = memberRepository.searchColumns(condition);
+        assertThat(filtered.getMemberIds()).containsExactly(member2.getId(), member3.getId());
+        assertThat(filtered.teamName(0)).isEqualTo("teamB");
+        assertThat(filtered.teamName(1)).isEqualTo("teamA");
+
+        MemberSearchCondition blank = new MemberSearchCondition();
+        blank.setTeamNames(Arrays.asList("", "teamB"));
+        assertThat(memberRepository.searchColumns(blank).getMemberIds()).containsExactly(member2.getId());
+    }
+
+    @Test
+    void teamStats() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 15, teamA));
+        em.persist(new Member("member3", 20, teamA));
+        em.persist(new Member("member4", 40, teamB));
+        em.persist(new Member("member5", 50));
+
+        List<TeamStatsDto> byTeam = memberRepository.teamStats(new TeamStatsCondition());
+        assertThat(byTeam).extracting("teamName", "memberCount", "minAge", "avgAge", "maxAge")
+                .containsExactly(tuple("teamA", 3L, 10, 15.0, 20), tuple("teamB", 1L, 40, 40.0, 40));
+
+        TeamStatsCondition bucketed = new TeamStatsCondition();
+        bucketed.setAgeBucketSize(10);
+        assertThat(memberRepository.teamStats(bucketed)).extracting("teamName", "ageBucket", "memberCount")
+                .containsExactly(tuple("teamA", 10, 2L), tuple("teamA", 20, 1L), tuple("teamB", 40, 1L));
+
+        TeamStatsCondition having = new TeamStatsCondition();
+        having.setMemberCountGoe(2L);
+        having.setAvgAgeLoe(30.0);
+        assertThat(memberRepository.teamStats(having)).extracting("teamName").containsExactly("teamA");
+    }
+
+    //집계 캐시는 쓰기 트랜잭션 밖에서만 쓰므로 커밋된 데이터로 확인
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void teamStatsCacheInvalidatedOnCommit() {
+        Team teamS = transactionTemplate.execute(status -> {
+            Team team = new Team("teamStatsCache");
+            em.persist(team);
+            em.persist(new Member("stats1", 10, team));
+            em.persist(new Member("stats2", 20, team));
+            return team;
+        });
+
+        try {
+            TeamStatsCondition condition = new TeamStatsCondition();
+            assertThat(memberRepository.teamStats(condition))
+                    .filteredOn("teamName", "teamStatsCache")
+                    .extracting("memberCount", "maxAge")
+                    .containsExactly(tuple(2L, 20));
+            try (QueryCounter.Scope scope = QueryCounter.open()) {
+                memberRepository.teamStats(condition);
+                assertThat(scope.getCount()).as("캐시에서 응답").isZero();
+            }
+            //꺼낸 DTO 를 바꿔도 캐시에는 남지 않는다.
+            memberRepository.teamStats(condition).forEach(stats -> stats.setMaxAge(-1));
+            assertThat(memberRepository.teamStats(condition))
+                    .filteredOn("teamName", "teamStatsCache")
+                    .extracting("maxAge")
+                    .containsExactly(20);
+
+            transactionTemplate.executeWithoutResult(status ->
+                    em.persist(new Member("stats3", 30, em.find(Team.class, teamS.getId()))));
+
+            assertThat(memberRepository.teamStats(condition))
+                    .filteredOn("teamName", "teamStatsCache")
+                    .extracting("memberCount", "maxAge")
+                    .containsExactly(tuple(3L, 30));
+        } finally {
+            transactionTemplate.executeWithoutResult(status -> {
+                MemberSearchCondition condition = new MemberSearchCondition();
+                condition.setTeamIds(List.of(teamS.getId()));
+                memberRepository.bulkDelete(condition);
+                em.remove(em.find(Team.class, teamS.getId()));
+            });
+        }
+    }
+
+    @Test
+    @MaxQueries(4)
+    void searchSlice() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        for (int i = 0; i < 5; i++) {
+            em.persist(new Member("member" + i, 10 + i, teamA));
+        }
+        em.flush();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+
+        try (QueryCounter.Scope scope = QueryCounter.open()) {
+            Slice<MemberTeamDto> first = memberRepository.searchSliceSimple(condition, PageRequest.of(0, 2));
+            assertThat(first.getContent()).extracting("username").containsExactly("member0", "member1");
+            assertThat(first.hasNext()).isTrue();
+            assertThat(scope.getCount()).as("count 쿼리 없음").isEqualTo(1);
+        }
+
+        Slice<MemberTeamDto> last = memberRepository.searchSliceSimple(condition, PageRequest.of(2, 2));
+        assertThat(last.getContent()).extracting("username").containsExactly("member4");
+        assertThat(last.hasNext()).isFalse();
+
+        Slice<MemberTeamDto> sorted = memberRepository.searchSliceComplex(condition,
+                PageRequest.of(1, 2, Sort.by(Sort.Direction.DESC, "age")));
+        assertThat(sorted.getContent()).extracting("age").containsExactly(12, 11);
+        assertThat(sorted.hasNext()).isTrue();
+
+        //정렬 조건이 있으면 Simple 도 정렬을 적용한다.
+        Slice<MemberTeamDto> sortedSimple = memberRepository.searchSliceSimple(condition,
+                PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "age")));
+        assertThat(sortedSimple.getContent()).extracting("age").containsExactly(14, 13);
+    }
+
+    //Simple 과 Complex 는 정렬이 다를 수 있으므로 같은 조건, 같은 페이지라도 캐시를 따로 쓴다.
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @MaxQueries(4)
+    void searchSliceCachedPerMethod() {
+        Team teamSlice = transactionTemplate.execute(status -> {
+            Team team = new Team("teamSliceCache");
+            em.persist(team);
+            for (int i = 0; i < 3; i++) {
+                em.persist(new Member("sliceCache" + i, 10 + i, team));
+            }
+            return team;
+        });
+
+        try {
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setTeamName("teamSliceCache");
+            PageRequest pageRequest = PageRequest.of(0, 2);
+
+            memberRepository.searchSliceSimple(condition, pageRequest);
+            try (QueryCounter.Scope scope = QueryCounter.open()) {
+                memberRepository.searchSliceSimple(condition, pageRequest);
+                assertThat(scope.getCount()).as("캐시에서 응답").isZero();
+
+                memberRepository.searchSliceComplex(condition, pageRequest);
+                assertThat(scope.getCount()).as("Simple 의 결과를 쓰지 않음").isEqualTo(1);
+            }
+        } finally {
+            transactionTemplate.executeWithoutResult(status -> {
+                MemberSearchCondition condition = new MemberSearchCondition();
+                condition.setTeamIds(List.of(teamSlice.getId()));
+                memberRepository.bulkDelete(condition);
+                em.remove(em.find(Team.class, teamSlice.getId()));
+            });
+        }
+    }
+
+    @Test
+    @MaxQueries(6)
+    void searchPageDeferred() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        for (int i = 0; i < 6; i++) {
+            em.persist(new Member("member" + i, 10 + i, i % 2 == 0 ? teamA : teamB));
+        }
+        em.flush();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(11);
+        PageRequest pageRequest = PageRequest.of(1, 2, Sort.by(Sort.Direction.DESC, "age"));
+
+        try (QueryCounter.Scope scope = QueryCounter.open()) {
+            Page<MemberTeamDto> result = memberRepository.searchPageDeferred(condition, pageRequest);
+
+            assertThat(result.getContent()).extracting("username", "teamName")
+                    .containsExactly(tuple("member3", "teamB"), tuple("member2", "teamA"));
+            assertThat(result.getTotalElements()).isEqualTo(5);
+            //offset 을 적용하는 쿼리는 member.id 만 조회한다.
+            assertThat(scope.getStatements().keySet())
+                    .filteredOn(sql -> sql.contains("offset") || sql.contains("limit"))
+                    .singleElement()
+                    .satisfies(sql -> assertThat(sql).startsWith("select member0_.member_id as col_0_0_ from"));
+        }
+
+        //빈 팀 조건은 무시되므로 id 쿼리에서 team 을 join 하지 않는다.
+        MemberSearchCondition blankTeam = new MemberSearchCondition();
+        blankTeam.setAgeGoe(11);
+        blankTeam.setTeamName(" ");
+        blankTeam.setTeamNames(List.of());
+        try (QueryCounter.Scope scope = QueryCounter.open()) {
+            Page<MemberTeamDto> result = memberRepository.searchPageDeferred(blankTeam, pageRequest);
+
+            assertThat(result.getContent()).extracting("username").containsExactly("member3", "member2");
+            assertThat(scope.getStatements().keySet())
+                    .filteredOn(sql -> sql.contains("offset") || sql.contains("limit"))
+                    .singleElement()
+                    .satisfies(sql -> assertThat(sql).doesNotContain("team"));
+        }
+    }
+
+    //정렬 키(age)가 같은 회원이 많아도 페이지 사이에 겹치거나 빠지지 않는다. (member.id 가 마지막 정렬 조건)
+    //페이지를 차례로 넘기며 같은 쿼리를 다시 실행하므로 반복 기준을 올린다.
+    @Test
+    @MaxQueries(value = 11, repeatThreshold = 4)
+    void searchPageDeferredTiebreaker() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Member saved = new Member("member" + i, i < 4 ? 20 : 30, teamA);
+            em.persist(saved);
+            ids.add(saved.getId());
+        }
+        em.flush();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        List<Long> paged = new ArrayList<>();
+        for (int page = 0; page < 3; page++) {
+            memberRepository.searchPageDeferred(condition, PageRequest.of(page, 2, Sort.by(Sort.Direction.DESC, "age")))
+                    .forEach(dto -> paged.add(dto.getMemberId()));
+        }
+        assertThat(paged).containsExactly(ids.get(4), ids.get(0), ids.get(1), ids.get(2), ids.get(3));
+
+        //정렬 조건이 없으면 id 순
+        try (QueryCounter.Scope scope = QueryCounter.open()) {
+            assertThat(memberRepository.searchPageDeferred(condition, PageRequest.of(1, 2)).getContent())
+                    .extracting("memberId").containsExactly(ids.get(2), ids.get(3));
+            assertThat(scope.getStatements().keySet())
+                    .filteredOn(sql -> sql.contains("offset") || sql.contains("limit"))
+                    .singleElement()
+                    .satisfies(sql -> assertThat(sql).contains("order by member0_.member_id asc"));
+        }
+    }
+
+    //searchPageComplex 는 정렬 없이(member.id 순) 조회하므로 같은 조건, 같은 페이지라도 deferred 와 캐시를 나눠 쓴다.
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @MaxQueries(6)
+    void searchPageCachedPerMethod() {
+        Team teamPage = transactionTemplate.execute(status -> {
+            Team team = new Team("teamPageCache");
+            em.persist(team);
+            for (int i = 0; i < 3; i++) {
+                em.persist(new Member("pageCache" + i, 10 + i, team));
+            }
+            return team;
+        });
+
+        try {
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setTeamName("teamPageCache");
+            PageRequest pageRequest = PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "age"));
+
+            assertThat(memberRepository.searchPageComplex(condition, pageRequest).getContent())
+                    .extracting("age").containsExactly(10, 11);
+            assertThat(memberRepository.searchPageDeferred(condition, pageRequest).getContent())
+                    .extracting("age").containsExactly(12, 11);
+        } finally {
+            transactionTemplate.executeWithoutResult(status -> {
+                MemberSearchCondition condition = new MemberSearchCondition();
+                condition.setTeamIds(List.of(teamPage.getId()));
+                memberRepository.bulkDelete(condition);
+                em.remove(em.find(Team.class, teamPage.getId()));
+            });
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.smalldogg.study.querydsl.repository;
+
+import com.smalldogg.study.querydsl.dto.MemberSearchCondition;
+import com.smalldogg.study.querydsl.entity.Member;
+import com.smalldogg.study.querydsl.entity.Team;
+import com.smalldogg.study.querydsl.metrics.QueryCounter;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 검색 조건 모양별로 생성되는 SQL 을 H2 EXPLAIN 으로 확인해 인덱스를 타는지 검사한다.
+ * 조건이 하나도 없는 모양은 전체를 읽어야 하므로 제외한다.
+ */
+@SpringBootTest
+@Transactional
+class MemberSearchPlanTest {
+    //조건 없이 테이블/인덱스 전체를 읽는 경우 : /* PUBLIC.MEMBER.tableScan */, /* PUBLIC.PRIMARY_KEY_8 */
+    private static final Pattern FULL_SCAN = Pattern.compile("/\\* [\\w.]+ \\*/");
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    MemberSearchTemplates searchTemplates;
+
+    @BeforeEach
+    void before() {
+        for (int i = 0; i < 10; i++) {
+            Team team = new Team("team" + i);
+            em.persist(team);
+            for (int j = 0; j < 10; j++) {
+                em.persist(new Member("member" + i + "_" + j, j * 10, team));
+            }
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    void everyShapeUsesIndex() {
+        List<String> fullScans = new ArrayList<>();
+        for (int fields = 1; fields < 16; fields++) {
+            MemberSearchCondition condition = condition(fields);
+            QueryCounter.Scope scope;
+            try (QueryCounter.Scope s = QueryCounter.open()) {
+                scope = s;
+                searchTemplates.search(condition);
+                searchTemplates.count(condition);
+            }
+
+            for (String sql : scope.getStatements().keySet()) {
+                String plan = explain(sql);
+                if (FULL_SCAN.matcher(plan).find()) {
+                    fullScans.add(condition + "\n" + plan);
+                }
+            }
+        }
+        assertThat(fullScans).isEmpty();
+    }
+
+    //username, teamName, ageGoe, ageLoe 의 설정 여부
+    private MemberSearchCondition condition(int fields) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        if ((fields & 1) != 0) {
+            condition.setUsername("member1_1");
+        }
+        if ((fields & 2) != 0) {
+            condition.setTeamName("team1");
+        }
+        if ((fields & 4) != 0) {
+            condition.setAgeGoe(20);
+        }
+        if ((fields & 8) != 0) {
+            condition.setAgeLoe(40);
+        }
+        return condition;
+    }
+
+    private String explain(String sql) {
+        return em.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement("explain " + sql)) {
+                int parameterCount = ps.getParameterMetaData().getParameterCount();
+                for (int i = 1; i <= parameterCount; i++) {
+                    ps.setObject(i, null);
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    return rs.getString(1);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,124 @@
+package com.smalldogg.study.querydsl.repository;
+
+import com.smalldogg.study.querydsl.dto.MemberSearchCondition;
+import com.smalldogg.study.querydsl.entity.Member;
+import com.smalldogg.study.querydsl.entity.Team;
+import com.smalldogg.study.querydsl.metrics.SearchTemplateMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@Transactional
+class MemberSearchTemplatesTest {
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    MemberSearchTemplates searchTemplates;
+
+    @Autowired
+    MeterRegistry registry;
+
+    @BeforeEach
+    void before() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+    }
+
+    @Test
+    void sameShapeReusesTemplate() {
+        MemberSearchCondition teamA = new MemberSearchCondition();
+        teamA.setTeamName("teamA");
+        teamA.setAgeGoe(15);
+
+        MemberSearchCondition teamB = new MemberSearchCondition();
+        teamB.setTeamName("teamB");
+        teamB.setAgeGoe(35);
+        teamB.setUsername("");
+
+        long misses = searchTemplates.getMissCount();
+        long hits = searchTemplates.getHitCount();
+
+        assertThat(searchTemplates.search(teamA)).extracting("username").containsExactly("member2");
+        assertThat(searchTemplates.search(teamB)).extracting("username").containsExactly("member4");
+        assertThat(searchTemplates.getHitCount() - hits).isGreaterThanOrEqualTo(1);
+        assertThat(searchTemplates.getMissCount() - misses).isLessThanOrEqualTo(1);
+    }
+
+    @Test
+    void hitAndMissCounters() {
+        searchTemplates.search(new MemberSearchCondition());
+        searchTemplates.search(new MemberSearchCondition());
+
+        assertThat(counter("hit")).isEqualTo(searchTemplates.getHitCount()).isPositive();
+        assertThat(counter("miss")).isEqualTo(searchTemplates.getMissCount());
+    }
+
+    private double counter(String result) {
+        return registry.get(SearchTemplateMetrics.METER_NAME).tag("result", result).functionCounter().count();
+    }
+
+    //JPA firstResult(int) 범위를 넘는 offset
+    @Test
+    void offsetTooLarge() {
+        assertThatThrownBy(() -> searchTemplates.search(new MemberSearchCondition(), Integer.MAX_VALUE + 1L, 10))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void pageAndCount() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeLoe(30);
+
+        assertThat(searchTemplates.search(condition, PageRequest.of(1, 2)))
+                .extracting("username").containsExactly("member3");
+        assertThat(searchTemplates.count(condition)).isEqualTo(3);
+    }
+
+    @Test
+    void inConditions() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernames(Arrays.asList("member1", "member3", "member4", "member3"));
+        condition.setTeamNames(Arrays.asList("teamB", ""));
+
+        assertThat(searchTemplates.search(condition)).extracting("username")
+                .containsExactly("member3", "member4");
+        assertThat(searchTemplates.count(condition)).isEqualTo(2);
+    }
+
+    @Test
+    void inConditionSplitIntoChunks() {
+        List<String> usernames = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            usernames.add("nobody" + i);
+        }
+        usernames.add("member2");
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernames(usernames);
+
+        assertThat(searchTemplates.search(condition)).extracting("username").containsExactly("member2");
+    }
+}
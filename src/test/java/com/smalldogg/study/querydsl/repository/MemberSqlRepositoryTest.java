@@ -0,0 +1,80 @@
+package com.smalldogg.study.querydsl.repository;
+
+import com.smalldogg.study.querydsl.dto.MemberRankDto;
+import com.smalldogg.study.querydsl.entity.Member;
+import com.smalldogg.study.querydsl.entity.Team;
+import com.smalldogg.study.querydsl.metrics.QueryCounter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest
+@Transactional
+class MemberSqlRepositoryTest {
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    MemberSqlRepository memberSqlRepository;
+
+    //QuerydslBasicTest 와 같은 데이터 (flush 하지 않아도 조회 전에 flush 된다)
+    @BeforeEach
+    void before() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+    }
+
+    @Test
+    void rankInTeam() {
+        try (QueryCounter.Scope scope = QueryCounter.open()) {
+            List<MemberRankDto> result = memberSqlRepository.rankInTeam();
+
+            assertThat(result).extracting("username", "teamName", "ageRank", "teamAvgAge").containsExactly(
+                    tuple("member2", "teamA", 1L, 15.0),
+                    tuple("member1", "teamA", 2L, 15.0),
+                    tuple("member4", "teamB", 1L, 35.0),
+                    tuple("member3", "teamB", 2L, 35.0));
+            assertThat(scope.getStatements().keySet())
+                    .filteredOn(sql -> sql.startsWith("select"))
+                    .singleElement()
+                    .satisfies(sql -> assertThat(sql).contains("row_number() over (partition by"));
+        }
+    }
+
+    @Test
+    void topNPerTeam() {
+        assertThat(memberSqlRepository.topNPerTeam(1)).extracting("username").containsExactly("member2", "member4");
+        assertThat(memberSqlRepository.topNPerTeam(2)).hasSize(4);
+    }
+
+    @Test
+    void aboveTeamAverage() {
+        assertThat(memberSqlRepository.aboveTeamAverage()).extracting("username").containsExactly("member2", "member4");
+    }
+
+    @Test
+    void runningAgeByTeam() {
+        assertThat(memberSqlRepository.runningAgeByTeam())
+                .extracting("username", "runningCount", "runningAgeSum", "runningAvgAge")
+                .containsExactly(
+                        tuple("member1", 1L, 10L, 10.0),
+                        tuple("member2", 2L, 30L, 15.0),
+                        tuple("member3", 1L, 30L, 30.0),
+                        tuple("member4", 2L, 70L, 35.0));
+    }
+}
@@ -0,0 +1,128 @@
+package com.smalldogg.study.querydsl.repository.support;
+
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.smalldogg.study.querydsl.dto.MemberTeamDto;
+import com.smalldogg.study.querydsl.dto.QMemberTeamDto;
+import com.smalldogg.study.querydsl.entity.Member;
+import com.smalldogg.study.querydsl.entity.Team;
+import com.smalldogg.study.querydsl.metrics.QueryCounter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import static com.smalldogg.study.querydsl.entity.QMember.member;
+import static com.smalldogg.study.querydsl.entity.QTeam.team;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class CountQueryDeriverTest {
+
+    @PersistenceContext
+    EntityManager em;
+
+    JPAQueryFactory queryFactory;
+
+    @BeforeEach
+    void before() {
+        queryFactory = new JPAQueryFactory(em);
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+        em.persist(new Member("member5", 50));
+        em.flush();
+    }
+
+    @Test
+    void deriveWithoutJoinPredicate() {
+        JPAQuery<MemberTeamDto> content = queryFactory
+                .select(new QMemberTeamDto(member.id, member.username, member.age, team.id, team.name))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(member.age.goe(20))
+                .orderBy(member.username.desc())
+                .offset(1)
+                .limit(2);
+
+        try (QueryCounter.Scope scope = QueryCounter.open()) {
+            assertThat(CountQueryDeriver.derive(content, em).getAsLong()).isEqualTo(4);
+
+            //조건에서 참조하지 않는 team 조인, 정렬, 페이징이 빠진다.
+            assertThat(scope.getStatements().keySet()).singleElement().satisfies(sql -> assertThat(sql)
+                    .startsWith("select count(member0_.member_id)")
+                    .doesNotContain("join", "order by", "limit", "offset"));
+        }
+    }
+
+    @Test
+    void deriveWithJoinPredicate() {
+        JPAQuery<Member> content = queryFactory
+                .selectFrom(member)
+                .leftJoin(member.team, team).fetchJoin()
+                .where(team.name.eq("teamB"))
+                .limit(1);
+
+        try (QueryCounter.Scope scope = QueryCounter.open()) {
+            assertThat(CountQueryDeriver.derive(content, em).getAsLong()).isEqualTo(2);
+
+            //조건에서 참조하는 조인은 남지만 fetch join 이 아니므로 team 컬럼은 조회하지 않는다.
+            assertThat(scope.getStatements().keySet()).singleElement().satisfies(sql -> assertThat(sql)
+                    .startsWith("select count(member0_.member_id) as col_0_0_ from member member0_ left outer join team team1_")
+                    .doesNotContain("team1_.name as"));
+        }
+    }
+
+    @Test
+    void deriveWithGroupBy() {
+        JPAQuery<String> content = queryFactory
+                .select(team.name)
+                .from(member)
+                .join(member.team, team)
+                .groupBy(team.name);
+
+        try (QueryCounter.Scope scope = QueryCounter.open()) {
+            assertThat(CountQueryDeriver.derive(content, em).getAsLong()).isEqualTo(2);
+
+            //그룹을 조회하지 않고 count(distinct) 한 row 로 센다.
+            assertThat(scope.getStatements().keySet()).singleElement().satisfies(sql -> assertThat(sql)
+                    .contains("count(distinct team1_.name)")
+                    .doesNotContain("group by"));
+        }
+    }
+
+    //팀이 없는 회원은 null 그룹 하나
+    @Test
+    void deriveWithGroupByNullKey() {
+        JPAQuery<String> content = queryFactory
+                .select(team.name)
+                .from(member)
+                .leftJoin(member.team, team)
+                .groupBy(team.name);
+
+        assertThat(CountQueryDeriver.derive(content, em).getAsLong()).isEqualTo(content.fetch().size());
+        assertThat(CountQueryDeriver.derive(content, em).getAsLong()).isEqualTo(3);
+    }
+
+    @Test
+    void deriveWithGroupByHaving() {
+        JPAQuery<String> content = queryFactory
+                .select(team.name)
+                .from(member)
+                .join(member.team, team)
+                .groupBy(team.name)
+                .having(member.age.max().gt(25));
+
+        assertThat(CountQueryDeriver.derive(content, em).getAsLong()).isEqualTo(1);
+    }
+}
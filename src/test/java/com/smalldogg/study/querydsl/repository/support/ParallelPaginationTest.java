@@ -0,0 +1,128 @@
+package com.smalldogg.study.querydsl.repository.support;
+
+import com.smalldogg.study.querydsl.entity.Member;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+//count 는 별도 스레드/커넥션에서 실행되므로 테스트 트랜잭션 없이 실행한다.
+@SpringBootTest
+class ParallelPaginationTest {
+
+    //오래 걸리는 count 대신 (H2 가 row 를 하나씩 만들어 더한다)
+    private static final String SLOW_COUNT = "select sum(x) from system_range(1, 10000000000)";
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    @Qualifier("countQueryExecutor")
+    Executor countQueryExecutor;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    TestRepository repository;
+
+    @BeforeEach
+    void before() {
+        repository = new TestRepository();
+        repository.setEntityManager(em);
+        repository.setCountQueryExecutor(countQueryExecutor);
+        repository.setTransactionManager(transactionManager);
+        repository.setCountQueryTimeout(1);
+        repository.validate();
+    }
+
+    @Test
+    void countStopsAtQueryTimeout() {
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> repository.page(ParallelPaginationTest::fullPage, slowCount(new CountDownLatch(1))).getTotalElements())
+                .isInstanceOf(RuntimeException.class);
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(10));
+    }
+
+    @Test
+    void contentFailureCancelsRunningCount() throws Exception {
+        repository.setCountQueryTimeout(0);
+        repository.validate();
+        CountDownLatch countStarted = new CountDownLatch(1);
+        CompletableFuture<Throwable> countFailure = new CompletableFuture<>();
+
+        assertThatThrownBy(() -> repository.page(() -> {
+            await(countStarted);
+            //count 의 Statement 가 실행에 들어갈 시간
+            sleep(300);
+            throw new IllegalStateException("content failed");
+        }, () -> {
+            try {
+                return slowCount(countStarted).getAsLong();
+            } catch (RuntimeException e) {
+                countFailure.complete(e);
+                throw e;
+            }
+        })).hasMessage("content failed");
+
+        //타임아웃 없이도 취소되어 금방 끝난다.
+        assertThat(countFailure.get(10, TimeUnit.SECONDS)).isNotNull();
+    }
+
+    //페이지가 가득 차야 count 를 쓴다.
+    private static List<Long> fullPage() {
+        return LongStream.range(0, 10).boxed().collect(Collectors.toList());
+    }
+
+    private LongSupplier slowCount(CountDownLatch started) {
+        return () -> {
+            started.countDown();
+            return ((Number) em.createNativeQuery(SLOW_COUNT).getSingleResult()).longValue();
+        };
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static class TestRepository extends Querydsl4RepositorySupport {
+        TestRepository() {
+            super(Member.class);
+        }
+
+        <T> Page<T> page(Supplier<List<T>> content, LongSupplier count) {
+            return fetchPageInParallel(PageRequest.of(0, 10), content, count);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.smalldogg.study.querydsl.sql;
+
+import com.querydsl.core.types.Path;
+import com.querydsl.sql.ColumnMetadata;
+import com.querydsl.sql.RelationalPath;
+import com.smalldogg.study.querydsl.entity.Member;
+import com.smalldogg.study.querydsl.entity.Team;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//직접 관리하는 SQL 쿼리 타입(SMember, STeam)이 엔티티 매핑, 실제 테이블과 어긋나지 않았는지 확인한다.
+@SpringBootTest
+class SqlQueryTypesTest {
+    @Autowired
+    EntityManagerFactory emf;
+
+    @Autowired
+    DataSource dataSource;
+
+    @Test
+    void member() throws SQLException {
+        assertMatches(SMember.member, Member.class);
+    }
+
+    @Test
+    void team() throws SQLException {
+        assertMatches(STeam.team, Team.class);
+    }
+
+    private void assertMatches(RelationalPath<?> path, Class<?> entityClass) throws SQLException {
+        AbstractEntityPersister persister = (AbstractEntityPersister) emf.unwrap(SessionFactoryImplementor.class)
+                .getMetamodel().entityPersister(entityClass);
+
+        //하이버네이트 매핑 : 테이블 이름과 컬럼 (컬렉션 속성은 컬럼이 없다)
+        assertThat(path.getTableName()).isEqualToIgnoringCase(persister.getTableName());
+        Set<String> mappedColumns = new HashSet<>(Arrays.asList(persister.getIdentifierColumnNames()));
+        for (String property : persister.getPropertyNames()) {
+            mappedColumns.addAll(Arrays.asList(persister.getPropertyColumnNames(property)));
+        }
+        assertThat(columnNames(path)).isEqualTo(toUpperCase(mappedColumns));
+
+        //실제 테이블 : 컬럼 순서, 타입, null 허용 여부
+        Map<String, ColumnMetadata> tableColumns = tableColumns(path.getSchemaName(), path.getTableName());
+        for (Path<?> column : path.getColumns()) {
+            ColumnMetadata expected = ColumnMetadata.getColumnMetadata(column);
+            ColumnMetadata actual = tableColumns.get(expected.getName());
+            assertThat(actual).as(expected.getName()).isNotNull();
+            assertThat(expected.getIndex()).as(expected.getName()).isEqualTo(actual.getIndex());
+            assertThat(expected.getJdbcType()).as(expected.getName()).isEqualTo(actual.getJdbcType());
+            assertThat(expected.isNullable()).as(expected.getName()).isEqualTo(actual.isNullable());
+        }
+    }
+
+    private Set<String> columnNames(RelationalPath<?> path) {
+        Set<String> names = new HashSet<>();
+        for (Path<?> column : path.getColumns()) {
+            names.add(ColumnMetadata.getName(column));
+        }
+        return names;
+    }
+
+    private static Set<String> toUpperCase(Set<String> names) {
+        Set<String> upper = new HashSet<>();
+        for (String name : names) {
+            upper.add(name.toUpperCase());
+        }
+        return upper;
+    }
+
+    private Map<String, ColumnMetadata> tableColumns(String schema, String table) throws SQLException {
+        Map<String, ColumnMetadata> columns = new HashMap<>();
+        try (Connection connection = dataSource.getConnection();
+             ResultSet rs = connection.getMetaData().getColumns(null, schema, table, null)) {
+            while (rs.next()) {
+                ColumnMetadata column = ColumnMetadata.named(rs.getString("COLUMN_NAME"))
+                        .withIndex(rs.getInt("ORDINAL_POSITION"))
+                        .ofType(rs.getInt("DATA_TYPE"));
+                if (rs.getInt("NULLABLE") == DatabaseMetaData.columnNoNulls) {
+                    column = column.notNull();
+                }
+                columns.put(column.getName(), column);
+            }
+        }
+        return columns;
+    }
+}
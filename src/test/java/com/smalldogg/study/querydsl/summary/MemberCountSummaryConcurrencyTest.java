@@ -0,0 +1,84 @@
+package com.smalldogg.study.querydsl.summary;
+
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//두 트랜잭션이 동시에 같은 카운터 row 를 만들어도 둘 다 반영된다. (트랜잭션마다 커밋하므로 테스트 트랜잭션 없이 실행)
+@SpringBootTest
+class MemberCountSummaryConcurrencyTest {
+
+    //다른 테스트와 겹치지 않는 (팀, 나이)
+    private static final long TEAM_ID = Long.MAX_VALUE;
+    private static final int AGE = 999;
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    MemberCountSummary countSummary;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @AfterEach
+    void cleanup() {
+        transactionTemplate.executeWithoutResult(status -> em.createNativeQuery(
+                        "delete from member_team_age_count where team_id = " + TEAM_ID + " and age = " + AGE)
+                .executeUpdate());
+    }
+
+    @Test
+    void concurrentFirstIncrement() throws Exception {
+        CountDownLatch firstWritten = new CountDownLatch(1);
+
+        CompletableFuture<Void> first = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(status -> {
+            increment();
+            firstWritten.countDown();
+            //두 번째 트랜잭션이 같은 row 를 insert 하려고 기다리는 동안 커밋을 늦춘다.
+            sleep(300);
+        }));
+        CompletableFuture<Void> second = CompletableFuture.runAsync(() -> {
+            await(firstWritten);
+            transactionTemplate.executeWithoutResult(status -> increment());
+        });
+
+        CompletableFuture.allOf(first, second).get(30, TimeUnit.SECONDS);
+
+        Number count = transactionTemplate.execute(status -> (Number) em.createNativeQuery(
+                        "select member_count from member_team_age_count where team_id = " + TEAM_ID + " and age = " + AGE)
+                .getSingleResult());
+        assertThat(count.longValue()).isEqualTo(2);
+    }
+
+    private void increment() {
+        countSummary.increment(em.unwrap(Session.class), TEAM_ID, AGE, 1);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.smalldogg.study.querydsl.summary;
+
+import com.smalldogg.study.querydsl.dto.MemberSearchCondition;
+import com.smalldogg.study.querydsl.entity.Member;
+import com.smalldogg.study.querydsl.entity.Team;
+import com.smalldogg.study.querydsl.metrics.QueryCounter;
+import com.smalldogg.study.querydsl.repository.MemberSearchTemplates;
+import org.assertj.core.api.InstanceOfAssertFactories;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import static org.assertj.core.api.Assertions.as;
+import static org.assertj.core.api.Assertions.assertThat;
+
+//요약 테이블을 끄면 count 는 member 테이블에서 세고, 시작할 때 다시 만들지도 않는다.
+//(카운터는 계속 갱신되므로 다시 켤 때 rebuild 없이도 맞는다)
+@SpringBootTest(properties = "member.count-summary.enabled=false")
+@Transactional
+class MemberCountSummaryDisabledTest {
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    MemberSearchTemplates searchTemplates;
+
+    @Autowired
+    ApplicationContext context;
+
+    @Test
+    void countFromMemberTable() {
+        Team team = new Team("summaryOff");
+        em.persist(team);
+        em.persist(new Member("member1", 10, team));
+        em.persist(new Member("member2", 20, team));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("summaryOff");
+        try (QueryCounter.Scope scope = QueryCounter.open()) {
+            assertThat(searchTemplates.count(condition)).isEqualTo(2);
+            assertThat(scope.getStatements().keySet())
+                    .filteredOn(sql -> sql.startsWith("select"))
+                    .singleElement(as(InstanceOfAssertFactories.STRING))
+                    .contains("from member ")
+                    .doesNotContain("member_team_age_count");
+        }
+        assertThat(context.getBeanNamesForType(MemberCountSummaryInitializer.class)).isEmpty();
+    }
+}
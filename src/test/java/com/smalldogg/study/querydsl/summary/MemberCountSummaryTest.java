@@ -0,0 +1,136 @@
+package com.smalldogg.study.querydsl.summary;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.smalldogg.study.querydsl.dto.MemberSearchCondition;
+import com.smalldogg.study.querydsl.entity.Member;
+import com.smalldogg.study.querydsl.entity.Team;
+import com.smalldogg.study.querydsl.metrics.QueryCounter;
+import com.smalldogg.study.querydsl.repository.MemberRepository;
+import com.smalldogg.study.querydsl.repository.MemberSearchTemplates;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+
+import static com.smalldogg.study.querydsl.entity.QMemberTeamAgeCount.memberTeamAgeCount;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class MemberCountSummaryTest {
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    MemberSearchTemplates searchTemplates;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberCountSummary countSummary;
+
+    Team teamA;
+    Team teamB;
+    Member member1;
+    Member member2;
+    long baseline;
+
+    //다른 테스트가 커밋한 데이터와 겹치지 않게 팀 이름과 나이 범위를 따로 쓴다.
+    @BeforeEach
+    void before() {
+        baseline = searchTemplates.count(new MemberSearchCondition());
+        teamA = new Team("summaryA");
+        teamB = new Team("summaryB");
+        em.persist(teamA);
+        em.persist(teamB);
+        member1 = new Member("member1", 110, teamA);
+        member2 = new Member("member2", 120, teamA);
+        em.persist(member1);
+        em.persist(member2);
+        em.persist(new Member("member3", 130, teamB));
+        em.persist(new Member("member4", 140));
+    }
+
+    @Test
+    void countFromSummary() {
+        //flush 전이어도 요약 테이블 조회 전에 flush 된다.
+        try (QueryCounter.Scope scope = QueryCounter.open()) {
+            assertThat(searchTemplates.count(condition("summaryA", null, null))).isEqualTo(2);
+            assertThat(scope.getStatements().keySet())
+                    .anyMatch(sql -> sql.contains("member_team_age_count"))
+                    .noneMatch(sql -> sql.contains("from member "));
+        }
+        assertThat(searchTemplates.count(new MemberSearchCondition())).isEqualTo(baseline + 4);
+        assertThat(searchTemplates.count(condition(null, 120, 140))).isEqualTo(3);
+        assertThat(searchTemplates.count(condition("summaryB", 120, 140))).isEqualTo(1);
+
+        MemberSearchCondition teamIds = new MemberSearchCondition();
+        teamIds.setTeamIds(List.of(teamA.getId(), teamB.getId()));
+        assertThat(searchTemplates.count(teamIds)).isEqualTo(3);
+    }
+
+    @Test
+    void entityChanges() {
+        em.flush();
+        member1.changeTeam(teamB);
+        member2.setAge(135);
+        em.flush();
+
+        assertThat(searchTemplates.count(condition("summaryA", null, null))).isEqualTo(1);
+        assertThat(searchTemplates.count(condition("summaryB", null, null))).isEqualTo(2);
+        assertThat(bucket(teamA, 110)).isZero();
+        assertThat(bucket(teamB, 110)).isEqualTo(1);
+        assertThat(bucket(teamA, 120)).isZero();
+        assertThat(bucket(teamA, 135)).isEqualTo(1);
+
+        em.remove(member2);
+        assertThat(searchTemplates.count(condition("summaryA", null, null))).isZero();
+    }
+
+    @Test
+    void bulkOperations() {
+        memberRepository.bulkAddAge(condition("summaryA", null, null), 5);
+        assertThat(bucket(teamA, 115)).isEqualTo(1);
+        assertThat(bucket(teamA, 125)).isEqualTo(1);
+        assertThat(searchTemplates.count(condition(null, 111, 129))).isEqualTo(2);
+
+        memberRepository.bulkDelete(condition("summaryA", null, 120));
+        assertThat(searchTemplates.count(new MemberSearchCondition())).isEqualTo(baseline + 3);
+        assertThat(bucket(teamA, 115)).isZero();
+    }
+
+    @Test
+    void rebuild() {
+        em.flush();
+        countSummary.rebuild();
+        assertThat(searchTemplates.count(new MemberSearchCondition())).isEqualTo(baseline + 4);
+        assertThat(bucket(null, 140)).isEqualTo(1);
+    }
+
+    private long bucket(Team team, int age) {
+        Long count = queryFactory
+                .select(memberTeamAgeCount.memberCount)
+                .from(memberTeamAgeCount)
+                .where(memberTeamAgeCount.teamId.eq(team != null ? team.getId() : MemberCountSummary.NO_TEAM),
+                        memberTeamAgeCount.age.eq(age))
+                .fetchOne();
+        return count != null ? count : 0L;
+    }
+
+    private static MemberSearchCondition condition(String teamName, Integer ageGoe, Integer ageLoe) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName(teamName);
+        condition.setAgeGoe(ageGoe);
+        condition.setAgeLoe(ageLoe);
+        return condition;
+    }
+}
@@ -0,0 +1,23 @@
+package com.smalldogg.study.querydsl.support;
+
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 테스트 메서드 본문에서 실행되는 조회(select) SQL 수의 상한 (@BeforeEach 는 제외)
+ * 상한을 넘거나 같은 SQL 이 repeatThreshold 번 이상 반복되면(N+1) 테스트가 실패한다.
+ * 본문에서 데이터를 준비하는 insert, merge 같은 쓰기 SQL 은 세지 않는다.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@ExtendWith(QueryBudgetExtension.class)
+public @interface MaxQueries {
+
+    int value();
+
+    int repeatThreshold() default 3;
+}
@@ -0,0 +1,49 @@
+package com.smalldogg.study.querydsl.support;
+
+import com.smalldogg.study.querydsl.metrics.QueryCounter;
+import org.junit.jupiter.api.extension.AfterTestExecutionCallback;
+import org.junit.jupiter.api.extension.BeforeTestExecutionCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class QueryBudgetExtension implements BeforeTestExecutionCallback, AfterTestExecutionCallback {
+
+    private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace.create(QueryBudgetExtension.class);
+
+    @Override
+    public void beforeTestExecution(ExtensionContext context) {
+        context.getStore(NAMESPACE).put(context.getUniqueId(), QueryCounter.open());
+    }
+
+    @Override
+    public void afterTestExecution(ExtensionContext context) {
+        QueryCounter.Scope scope = context.getStore(NAMESPACE).remove(context.getUniqueId(), QueryCounter.Scope.class);
+        scope.close();
+        if (context.getExecutionException().isPresent()) {
+            return;
+        }
+
+        MaxQueries maxQueries = context.getRequiredTestMethod().getAnnotation(MaxQueries.class);
+        Map<String, Integer> selects = new LinkedHashMap<>();
+        scope.getStatements().forEach((sql, times) -> {
+            if (isSelect(sql)) {
+                selects.put(sql, times);
+            }
+        });
+        Map<String, Integer> repeated = new LinkedHashMap<>(selects);
+        repeated.values().removeIf(times -> times < maxQueries.repeatThreshold());
+        assertThat(repeated).as("N+1 의심 : 같은 SQL 반복 실행").isEmpty();
+
+        int count = selects.values().stream().mapToInt(Integer::intValue).sum();
+        assertThat(count).as("실행된 조회 SQL %s", selects).isLessThanOrEqualTo(maxQueries.value());
+    }
+
+    //테스트 데이터를 넣는 insert, 시퀀스 호출, 요약 테이블 merge 는 세지 않는다.
+    private static boolean isSelect(String sql) {
+        return sql.stripLeading().regionMatches(true, 0, "select", 0, "select".length());
+    }
+}